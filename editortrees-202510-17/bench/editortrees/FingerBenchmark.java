@@ -0,0 +1,83 @@
+package editortrees;
+
+import static editortrees.TestUtil.randomString;
+
+import java.util.Random;
+
+/**
+ * Times reads through the Finger against reads from the root on a large
+ * document: a typing trace that redraws the line around the caret after every
+ * keystroke, and a scan of the whole document in order. Only the reads are
+ * timed, since edits don't use the finger (see EditTree.get()). It lives in
+ * the bench source folder, a test source folder of its own, so it is neither
+ * shipped with the trees nor run with the unit tests; run it by hand.
+ */
+public class FingerBenchmark {
+	private static final int DOCUMENT_SIZE = 10000000;
+
+	public static void main(String[] args) {
+		String document = randomString(new Random(1), DOCUMENT_SIZE);
+		int[] fingerSum = new int[1];
+		int[] rootSum = new int[1];
+		// warm up both ways first
+		typingTrace(new EditTree(document.substring(0, 100000)), true, new int[1]);
+		typingTrace(new EditTree(document.substring(0, 100000)), false, new int[1]);
+		long fingerTime = typingTrace(new EditTree(document), true, fingerSum);
+		long rootTime = typingTrace(new EditTree(document), false, rootSum);
+		if(fingerSum[0] != rootSum[0]) {
+			throw new IllegalStateException("the finger read different characters");
+		}
+
+		EditTree t = new EditTree(document);
+		long start = System.nanoTime();
+		int sum = 0;
+		for(int i = 0; i < t.size(); i++) {
+			sum += t.get(i);
+		}
+		long fingerScan = System.nanoTime() - start;
+		start = System.nanoTime();
+		for(int i = 0; i < t.size(); i++) {
+			sum -= t.root.get(i);
+		}
+		long rootScan = System.nanoTime() - start;
+		if(sum != 0) {
+			throw new IllegalStateException("the finger read different characters");
+		}
+
+		System.out.printf("%d chars. typing trace reads: finger %dms, root %dms. full scan: finger %dms, root %dms%n",
+				DOCUMENT_SIZE, fingerTime / 1000000, rootTime / 1000000, fingerScan / 1000000, rootScan / 1000000);
+	}
+
+	// a renderer redrawing the line around the caret
+	private static int readLine(EditTree t, int caret, boolean useFinger) {
+		int sum = 0;
+		int from = Math.max(0, caret - 40);
+		int to = Math.min(t.size(), caret + 40);
+		for(int i = from; i < to; i++) {
+			sum += useFinger ? t.get(i) : t.root.get(i);
+		}
+		return sum;
+	}
+
+	// runs the same trace either way and returns the time spent reading
+	private static long typingTrace(EditTree t, boolean useFinger, int[] checksum) {
+		Random random = new Random(99);
+		long readTime = 0;
+		int caret = t.size() / 2;
+		for(int burst = 0; burst < 2000; burst++) {
+			caret = Math.min(t.size(), Math.max(0, caret + random.nextInt(2001) - 1000));
+			for(int i = 0; i < 20; i++) {
+				if(random.nextInt(5) == 0 && caret > 0) {
+					t.delete(--caret);
+				}
+				else {
+					t.add((char) ('a' + random.nextInt(26)), caret++);
+				}
+				long start = System.nanoTime();
+				checksum[0] += readLine(t, caret, useFinger);
+				readTime += System.nanoTime() - start;
+			}
+		}
+		return readTime;
+	}
+}
@@ -0,0 +1,578 @@
+package editortrees;
+
+import java.util.Arrays;
+
+/**
+ * A height-balanced binary tree with rank with the same public operations and
+ * the same shapes, ranks, balance codes and rotations as EditTree, but whose
+ * nodes live in parallel primitive arrays instead of one Node object per
+ * character.
+ *
+ * A node is an int handle into the arrays. Handle 0 plays the role of
+ * Node.NULL_NODE. The arrays grow geometrically, and the slots of deleted nodes
+ * are kept in a free list (chained through left) and reused by later adds, so
+ * a large document is a handful of big arrays for the garbage collector instead
+ * of millions of small objects.
+ */
+public class ArenaEditTree {
+
+	static final int NULL_NODE = 0;
+	private static final int INITIAL_CAPACITY = 16;
+
+	// balance codes, in the same order as Node.Code
+	private static final byte SAME = 0, LEFT = 1, RIGHT = 2;
+	private static final Node.Code[] CODES = Node.Code.values();
+
+	int[] left;
+	int[] right;
+	int[] rank;
+	byte[] balance;
+	char[] data;
+
+	int root;
+	private int size;
+	private int freeList; // first free slot, NULL_NODE if there is none
+	private int used; // slots handed out so far, including slot 0
+	int rotCount;
+
+	// rebalancing state shared by one add() or delete(), see BContainer
+	private boolean isBalanced;
+	private boolean proceedBCchanges;
+	private char deleted;
+
+	/**
+	 * Construct an empty tree
+	 */
+	public ArenaEditTree() {
+		this(INITIAL_CAPACITY);
+	}
+
+	private ArenaEditTree(int capacity) {
+		left = new int[capacity];
+		right = new int[capacity];
+		rank = new int[capacity];
+		balance = new byte[capacity];
+		data = new char[capacity];
+		used = 1; // slot 0 is the NULL_NODE
+		root = NULL_NODE;
+	}
+
+	/**
+	 * Construct a single-node tree whose element is ch
+	 *
+	 * @param ch
+	 */
+	public ArenaEditTree(char ch) {
+		this();
+		root = newNode(ch);
+		size = 1;
+	}
+
+	/**
+	 * Make this tree be a copy of e. Since the nodes are just array slots, this
+	 * copies the arrays.
+	 *
+	 * @param e
+	 */
+	public ArenaEditTree(ArenaEditTree e) {
+		left = e.left.clone();
+		right = e.right.clone();
+		rank = e.rank.clone();
+		balance = e.balance.clone();
+		data = e.data.clone();
+		root = e.root;
+		size = e.size;
+		freeList = e.freeList;
+		used = e.used;
+		rotCount = e.rotCount;
+	}
+
+	/**
+	 * Create a tree whose toString is s, in O(N) time.
+	 *
+	 * @param s
+	 */
+	public ArenaEditTree(String s) {
+		this(Math.max(INITIAL_CAPACITY, s.length() + 1));
+		root = TreeMakerWString(s, 0, s.length() - 1);
+		size = s.length();
+	}
+
+	private int TreeMakerWString(String s, int beg, int end) {
+		if(beg > end) {
+			return NULL_NODE;
+		}
+		int middle = (beg + end) / 2;
+		int curr = newNode(s.charAt(middle));
+		left[curr] = TreeMakerWString(s, beg, middle - 1);
+		right[curr] = TreeMakerWString(s, middle + 1, end);
+		rank[curr] = middle - beg;
+		// the right half is never smaller, so it is the taller one if they differ
+		balance[curr] = height(middle - beg) == height(end - middle) ? SAME : RIGHT;
+		return curr;
+	}
+
+	// height of a tree with count nodes built by TreeMakerWString
+	private static int height(int count) {
+		return 31 - Integer.numberOfLeadingZeros(count);
+	}
+
+	// takes a slot from the free list, or the next unused one
+	private int newNode(char ch) {
+		int n;
+		if(freeList != NULL_NODE) {
+			n = freeList;
+			freeList = left[n];
+		}
+		else {
+			if(used == data.length) {
+				grow();
+			}
+			n = used++;
+		}
+		data[n] = ch;
+		left[n] = NULL_NODE;
+		right[n] = NULL_NODE;
+		rank[n] = 0;
+		balance[n] = SAME;
+		return n;
+	}
+
+	private void freeNode(int n) {
+		left[n] = freeList;
+		freeList = n;
+	}
+
+	private void grow() {
+		int capacity = data.length + (data.length >> 1) + 1;
+		left = Arrays.copyOf(left, capacity);
+		right = Arrays.copyOf(right, capacity);
+		rank = Arrays.copyOf(rank, capacity);
+		balance = Arrays.copyOf(balance, capacity);
+		data = Arrays.copyOf(data, capacity);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder(size);
+		InOrderToString(root, result);
+		return result.toString();
+	}
+
+	private void InOrderToString(int n, StringBuilder result) {
+		if(n == NULL_NODE)
+			return;
+		InOrderToString(left[n], result);
+		result.append(data[n]);
+		InOrderToString(right[n], result);
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @param ch character to add to the end of this tree.
+	 */
+	public void add(char ch) {
+		add(ch, size);
+	}
+
+	/**
+	 * @param ch  character to add
+	 * @param pos character added in this in-order position. Valid positions range
+	 *            from 0 to the size of the tree, inclusive.
+	 * @throws IndexOutOfBoundsException if pos is negative or too large for this
+	 *                                   tree.
+	 */
+	public void add(char ch, int pos) throws IndexOutOfBoundsException {
+		if(pos < 0 || pos > size) {
+			throw new IndexOutOfBoundsException();
+		}
+		isBalanced = false;
+		root = add(root, ch, pos);
+		size++;
+	}
+
+	private int add(int n, char ch, int pos) {
+		if(n == NULL_NODE) {
+			return newNode(ch);
+		}
+		if(pos <= rank[n]) {
+			rank[n]++;
+			int child = add(left[n], ch, pos);
+			left[n] = child;
+			return getLeftBalanced(n);
+		}
+		int child = add(right[n], ch, pos - rank[n] - 1);
+		right[n] = child;
+		return getRightBalanced(n);
+	}
+
+	private int singleLeft(int curr) {
+		int newRoot = right[curr];
+		right[curr] = left[newRoot];
+		left[newRoot] = curr;
+		balance[curr] = SAME;
+		balance[newRoot] = SAME;
+		rank[newRoot] += rank[curr] + 1;
+		return newRoot;
+	}
+
+	private int singleRight(int curr) {
+		int newRoot = left[curr];
+		left[curr] = right[newRoot];
+		right[newRoot] = curr;
+		balance[curr] = SAME;
+		balance[newRoot] = SAME;
+		rank[curr] -= rank[newRoot] + 1;
+		return newRoot;
+	}
+
+	private int doubleLeftRotation(int n) {
+		byte tempBalanceOfC = balance[left[right[n]]];
+		right[n] = singleRight(right[n]);
+		int temp = singleLeft(n);
+		rotCount += 2;
+		fixDoubleRotation(temp, tempBalanceOfC);
+		return temp;
+	}
+
+	private int doubleRightRotation(int n) {
+		byte tempBalanceOfC = balance[right[left[n]]];
+		left[n] = singleLeft(left[n]);
+		int temp = singleRight(n);
+		rotCount += 2;
+		fixDoubleRotation(temp, tempBalanceOfC);
+		return temp;
+	}
+
+	private void fixDoubleRotation(int temp, byte tempBalanceOfC) {
+		if(tempBalanceOfC == LEFT) {
+			balance[right[temp]] = RIGHT;
+		}
+		else if(tempBalanceOfC == RIGHT) {
+			balance[left[temp]] = LEFT;
+		}
+	}
+
+	private int getRightBalanced(int n) {
+		if(isBalanced) {
+			return n;
+		}
+		if(balance[n] == RIGHT && balance[right[n]] == LEFT) {
+			isBalanced = true;
+			return doubleLeftRotation(n);
+		}
+		if(balance[n] == SAME) {
+			balance[n] = RIGHT;
+		}
+		else if(balance[n] == LEFT) {
+			balance[n] = SAME;
+			isBalanced = true;
+		}
+		else {
+			rotCount++;
+			isBalanced = true;
+			return singleLeft(n);
+		}
+		return n;
+	}
+
+	private int getLeftBalanced(int n) {
+		if(isBalanced) {
+			return n;
+		}
+		if(balance[n] == LEFT && balance[left[n]] == RIGHT) {
+			isBalanced = true;
+			return doubleRightRotation(n);
+		}
+		if(balance[n] == SAME) {
+			balance[n] = LEFT;
+		}
+		else if(balance[n] == RIGHT) {
+			balance[n] = SAME;
+			isBalanced = true;
+		}
+		else {
+			rotCount++;
+			isBalanced = true;
+			return singleRight(n);
+		}
+		return n;
+	}
+
+	/**
+	 * @param pos position in the tree
+	 * @return the character at that position
+	 * @throws IndexOutOfBoundsException if pos is negative or too big.
+	 */
+	public char get(int pos) throws IndexOutOfBoundsException {
+		if(pos < 0 || pos >= size) {
+			throw new IndexOutOfBoundsException();
+		}
+		int n = root;
+		while(pos != rank[n]) {
+			if(pos < rank[n]) {
+				n = left[n];
+			}
+			else {
+				pos -= rank[n] + 1;
+				n = right[n];
+			}
+		}
+		return data[n];
+	}
+
+	/**
+	 * @param pos    location of the beginning of the string to retrieve
+	 * @param length length of the string to retrieve
+	 * @return string of length that starts in position pos
+	 * @throws IndexOutOfBoundsException unless both pos and pos+length-1 are
+	 *                                   legitimate indexes within this tree.
+	 */
+	public String get(int pos, int length) throws IndexOutOfBoundsException {
+		if(pos < 0 || length < 0 || pos + length > size) {
+			throw new IndexOutOfBoundsException();
+		}
+		StringBuilder result = new StringBuilder(length);
+		InOrderGetToString(root, result, pos, length, 0);
+		return result.toString();
+	}
+
+	private void InOrderGetToString(int n, StringBuilder result, int pos, int length, int currentPos) {
+		if(n == NULL_NODE) {
+			return;
+		}
+		int thisPos = currentPos + rank[n];
+		if(pos < thisPos) {
+			InOrderGetToString(left[n], result, pos, length, currentPos);
+		}
+		if(thisPos >= pos && thisPos < pos + length) {
+			result.append(data[n]);
+		}
+		if(thisPos < pos + length - 1) {
+			InOrderGetToString(right[n], result, pos, length, thisPos + 1);
+		}
+	}
+
+	/**
+	 * @param pos position of character to delete from this tree
+	 * @return the character that is deleted
+	 * @throws IndexOutOfBoundsException
+	 */
+	public char delete(int pos) throws IndexOutOfBoundsException {
+		if(pos < 0 || pos >= size) {
+			throw new IndexOutOfBoundsException();
+		}
+		isBalanced = false;
+		proceedBCchanges = true;
+		root = delete(root, pos);
+		size--;
+		return deleted;
+	}
+
+	private int delete(int n, int pos) {
+		if(pos < rank[n]) {
+			int child = delete(left[n], pos);
+			left[n] = child;
+			return getDeleteLeftBalance(n);
+		}
+		if(pos > rank[n]) {
+			int child = delete(right[n], pos - rank[n] - 1);
+			right[n] = child;
+			return getDeleteRightBalance(n);
+		}
+		deleted = data[n];
+		if(left[n] == NULL_NODE || right[n] == NULL_NODE) {
+			int child = left[n] != NULL_NODE ? left[n] : right[n];
+			freeNode(n);
+			return child;
+		}
+		// hibbard deletion with successor
+		char removed = deleted;
+		int child = delete(right[n], 0);
+		right[n] = child;
+		data[n] = deleted;
+		deleted = removed;
+		return getDeleteRightBalance(n);
+	}
+
+	private int getDeleteLeftBalance(int n) {
+		rank[n]--;
+		if(balance[n] == RIGHT && !isBalanced) {
+			int r = right[n];
+			if(balance[r] == LEFT) {
+				return doubleLeftRotation(n);
+			}
+			rotCount++;
+			if(balance[r] == RIGHT) {
+				return singleLeft(n);
+			}
+			// edge case: the rotation does not change the height
+			int temp = singleLeft(n);
+			balance[temp] = LEFT;
+			balance[left[temp]] = RIGHT;
+			proceedBCchanges = false;
+			isBalanced = true;
+			return temp;
+		}
+		else if(balance[n] == SAME && proceedBCchanges) {
+			balance[n] = RIGHT;
+			isBalanced = true;
+			proceedBCchanges = false;
+		}
+		else if(proceedBCchanges) {
+			balance[n] = SAME;
+		}
+		return n;
+	}
+
+	private int getDeleteRightBalance(int n) {
+		if(balance[n] == LEFT && !isBalanced) {
+			int l = left[n];
+			if(balance[l] == RIGHT) {
+				return doubleRightRotation(n);
+			}
+			rotCount++;
+			if(balance[l] == LEFT) {
+				return singleRight(n);
+			}
+			// edge case: the rotation does not change the height
+			int temp = singleRight(n);
+			balance[temp] = RIGHT;
+			balance[right[temp]] = LEFT;
+			proceedBCchanges = false;
+			isBalanced = true;
+			return temp;
+		}
+		else if(balance[n] == SAME && proceedBCchanges) {
+			balance[n] = LEFT;
+			isBalanced = true;
+			proceedBCchanges = false;
+		}
+		else if(proceedBCchanges) {
+			balance[n] = SAME;
+		}
+		return n;
+	}
+
+	/**
+	 * @return The string of elements and ranks, given in a pre-order traversal
+	 *         of the tree, in the same format as EditTree.toRankString().
+	 */
+	public String toRankString() {
+		StringBuilder result = new StringBuilder("[");
+		PreOrderToString(root, result, false);
+		return closeList(result);
+	}
+
+	/**
+	 * @return The string of elements, ranks and balance codes, given in a
+	 *         pre-order traversal of the tree, in the same format as
+	 *         EditTree.toDebugString().
+	 */
+	public String toDebugString() {
+		StringBuilder result = new StringBuilder("[");
+		PreOrderToString(root, result, true);
+		return closeList(result);
+	}
+
+	private String closeList(StringBuilder result) {
+		if(result.length() > 1) {
+			result.setLength(result.length() - 2); // remove the last comma and space
+		}
+		return result.append(']').toString();
+	}
+
+	private void PreOrderToString(int n, StringBuilder result, boolean withBalance) {
+		if(n == NULL_NODE) {
+			return;
+		}
+		result.append(data[n]).append(rank[n]);
+		if(withBalance) {
+			result.append(CODES[balance[n]]);
+		}
+		result.append(", ");
+		PreOrderToString(left[n], result, withBalance);
+		PreOrderToString(right[n], result, withBalance);
+	}
+
+	public int totalRotationCount() {
+		return rotCount;
+	}
+
+	public int slowHeight() {
+		return slowHeight(root);
+	}
+
+	private int slowHeight(int n) {
+		if(n == NULL_NODE) {
+			return -1;
+		}
+		return Math.max(slowHeight(left[n]), slowHeight(right[n])) + 1;
+	}
+
+	public int slowSize() {
+		return slowSize(root);
+	}
+
+	private int slowSize(int n) {
+		if(n == NULL_NODE) {
+			return 0;
+		}
+		return slowSize(left[n]) + slowSize(right[n]) + 1;
+	}
+
+	/**
+	 * @return the height of this tree, found from the balance codes in O(log n)
+	 */
+	public int fastHeight() {
+		int height = -1;
+		for(int n = root; n != NULL_NODE; n = balance[n] == LEFT ? left[n] : right[n]) {
+			height++;
+		}
+		return height;
+	}
+
+	/**
+	 * @return True iff each node's rank correctly equals its left subtree's size.
+	 */
+	public boolean ranksMatchLeftSubtreeSize() {
+		return rankMatchesLeftSize(root).rankEqualSize;
+	}
+
+	private LeftTreeSize rankMatchesLeftSize(int n) {
+		if(n == NULL_NODE) {
+			return new LeftTreeSize(0, true);
+		}
+		LeftTreeSize leftRank = rankMatchesLeftSize(left[n]);
+		LeftTreeSize rightRank = rankMatchesLeftSize(right[n]);
+		boolean isEqual = leftRank.rankEqualSize && rightRank.rankEqualSize && rank[n] == leftRank.size;
+		return new LeftTreeSize(leftRank.size + rightRank.size + 1, isEqual);
+	}
+
+	/**
+	 * @return True iff each node's balance code is correct.
+	 */
+	public boolean balanceCodesAreCorrect() {
+		return checkBalanceCodes(root).isCorrect;
+	}
+
+	private BalanceCodeChecker checkBalanceCodes(int n) {
+		if(n == NULL_NODE) {
+			return new BalanceCodeChecker(true, -1);
+		}
+		BalanceCodeChecker leftTree = checkBalanceCodes(left[n]);
+		BalanceCodeChecker rightTree = checkBalanceCodes(right[n]);
+		int height = Math.max(leftTree.height, rightTree.height) + 1;
+		if(!(leftTree.isCorrect && rightTree.isCorrect)) {
+			return new BalanceCodeChecker(false, height);
+		}
+		boolean isCorrect = (leftTree.height == rightTree.height && balance[n] == SAME)
+				|| (leftTree.height > rightTree.height && balance[n] == LEFT)
+				|| (leftTree.height < rightTree.height && balance[n] == RIGHT);
+		return new BalanceCodeChecker(isCorrect, height);
+	}
+
+}
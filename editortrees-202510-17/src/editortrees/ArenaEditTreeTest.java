@@ -0,0 +1,187 @@
+package editortrees;
+
+import static editortrees.TestUtil.assertValid;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test cases for the array-backed ArenaEditTree. Most of them replay the same
+ * edits on an EditTree and check that both trees end up with the same shape,
+ * ranks, balance codes and rotation counts.
+ */
+public class ArenaEditTreeTest {
+
+	private void assertSameTree(EditTree expected, ArenaEditTree t) {
+		assertEquals(expected.toString(), t.toString());
+		assertEquals(expected.toDebugString(), t.toDebugString());
+		assertEquals(expected.toRankString(), t.toRankString());
+		assertEquals(expected.size(), t.size());
+		assertEquals(expected.totalRotationCount(), t.totalRotationCount());
+		if(t.size() > 0) {
+			assertEquals(expected.fastHeight(), t.fastHeight());
+		}
+	}
+
+	@Test
+	public void testEmptyAndSingle() {
+		assertSameTree(new EditTree(), new ArenaEditTree());
+		assertSameTree(new EditTree('x'), new ArenaEditTree('x'));
+		assertEquals(-1, new ArenaEditTree().slowHeight());
+	}
+
+	@Test
+	public void testAppendMatchesEditTree() {
+		EditTree expected = new EditTree();
+		ArenaEditTree t = new ArenaEditTree();
+		for(char c = 'a'; c <= 'z'; c++) {
+			expected.add(c);
+			t.add(c);
+			assertSameTree(expected, t);
+		}
+	}
+
+	@Test
+	public void testRandomAddsMatchEditTree() {
+		Random random = new Random(3);
+		EditTree expected = new EditTree();
+		ArenaEditTree t = new ArenaEditTree();
+		for(int i = 0; i < 3000; i++) {
+			int pos = random.nextInt(t.size() + 1);
+			char c = (char) ('a' + random.nextInt(26));
+			expected.add(c, pos);
+			t.add(c, pos);
+		}
+		assertSameTree(expected, t);
+		// copies keep the count, like EditTree(EditTree) does
+		assertTrue(t.totalRotationCount() > 0);
+		assertEquals(t.totalRotationCount(), new ArenaEditTree(t).totalRotationCount());
+		assertEquals(new EditTree(expected).totalRotationCount(), new ArenaEditTree(t).totalRotationCount());
+		for(int i = 0; i < t.size(); i += 97) {
+			assertEquals(expected.get(i), t.get(i));
+			assertEquals(expected.get(i, 20), t.get(i, 20));
+		}
+	}
+
+	@Test
+	public void testDeleteMatchesEditTree() {
+		EditTree expected = new EditTree();
+		ArenaEditTree t = new ArenaEditTree();
+		for(char c = 'a'; c <= 'z'; c++) {
+			expected.add(c);
+			t.add(c);
+		}
+		// deleting from the root down exercises the two-children case
+		while(t.size() > 10) {
+			int pos = t.size() / 2;
+			assertEquals(expected.delete(pos), t.delete(pos));
+			assertSameTree(expected, t);
+		}
+	}
+
+	@Test
+	public void testRandomEditsMatchEditTree() {
+		Random random = new Random(23);
+		EditTree expected = new EditTree();
+		ArenaEditTree t = new ArenaEditTree();
+		for(int i = 0; i < 5000; i++) {
+			if(t.size() > 0 && random.nextInt(3) == 0) {
+				int pos = random.nextInt(t.size());
+				assertEquals(expected.delete(pos), t.delete(pos));
+			}
+			else {
+				int pos = random.nextInt(t.size() + 1);
+				char c = (char) ('a' + random.nextInt(26));
+				expected.add(c, pos);
+				t.add(c, pos);
+			}
+			if(i % 100 == 0) {
+				assertSameTree(expected, t);
+			}
+		}
+		assertSameTree(expected, t);
+		assertTrue(expected.balanceCodesAreCorrect());
+	}
+
+	@Test
+	public void testRandomEditsStayBalanced() {
+		Random random = new Random(11);
+		ArenaEditTree t = new ArenaEditTree();
+		StringBuilder expected = new StringBuilder();
+		for(int i = 0; i < 20000; i++) {
+			if(expected.length() > 0 && random.nextInt(3) == 0) {
+				int pos = random.nextInt(expected.length());
+				assertEquals(expected.charAt(pos), t.delete(pos));
+				expected.deleteCharAt(pos);
+			}
+			else {
+				int pos = random.nextInt(expected.length() + 1);
+				char c = (char) ('a' + random.nextInt(26));
+				t.add(c, pos);
+				expected.insert(pos, c);
+			}
+			if(i % 500 == 0) {
+				assertValid(expected.toString(), t);
+			}
+		}
+		assertValid(expected.toString(), t);
+	}
+
+	@Test
+	public void testDeletedSlotsAreReused() {
+		ArenaEditTree t = new ArenaEditTree();
+		for(int i = 0; i < 1000; i++) {
+			t.add('a');
+		}
+		int capacity = t.data.length;
+		for(int i = 0; i < 10000; i++) {
+			t.delete(i % t.size());
+			t.add('b', (7 * i) % t.size());
+		}
+		assertEquals(capacity, t.data.length);
+		assertEquals(1000, t.size());
+		assertValid(t.toString(), t);
+	}
+
+	@Test
+	public void testStringAndCopyConstructors() {
+		StringBuilder s = new StringBuilder();
+		for(int n = 0; n < 300; n++) {
+			ArenaEditTree t = new ArenaEditTree(s.toString());
+			assertValid(s.toString(), t);
+			ArenaEditTree copy = new ArenaEditTree(t);
+			assertEquals(t.toDebugString(), copy.toDebugString());
+			copy.add('!', 0);
+			assertEquals(s.toString(), t.toString());
+			s.append((char) ('a' + n % 26));
+		}
+	}
+
+	@Test
+	public void testInvalidPositions() {
+		ArenaEditTree t = new ArenaEditTree("abc");
+		try {
+			t.add('x', -1);
+			fail("Did not throw IndexOutOfBoundsException");
+		} catch(IndexOutOfBoundsException e) {
+			// success
+		}
+		try {
+			t.delete(3);
+			fail("Did not throw IndexOutOfBoundsException");
+		} catch(IndexOutOfBoundsException e) {
+			// success
+		}
+		try {
+			t.get(2, 2);
+			fail("Did not throw IndexOutOfBoundsException");
+		} catch(IndexOutOfBoundsException e) {
+			// success
+		}
+	}
+
+}
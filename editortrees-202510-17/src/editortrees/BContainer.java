@@ -1,14 +1,98 @@
 package editortrees;
 
+/**
+ * Rebalancing state carried through one add() or delete(). Each EditTree keeps
+ * one and resets it before every operation instead of allocating a new one, so
+ * the add/delete hot path only allocates the node being added.
+ */
 public class BContainer { 	// boolean Container
 	boolean isBalanced;
 	int rotCount;
 	public char data;
 	boolean proceedBCchanges; // marks if balance code (going towards root) should be changing
+	int height; // height of the tree returned by the last Node.join()
+	Object owner; // stamp of the nodes this tree may change in place, see own()
+	boolean counted; // whether the tree's nodes are CountedNodes
+	Summary<?>[] summaries; // the tree's summaries, or null if it has none
 	
 	public BContainer(boolean isBalanced, int rotCount) {
 		this.isBalanced = isBalanced;
 		this.rotCount = rotCount;
 		this.proceedBCchanges = true;
+		this.owner = new Object();
+	}
+	
+	/**
+	 * Gets this container ready for the next operation on its tree.
+	 */
+	void reset() {
+		this.isBalanced = false;
+		this.rotCount = 0;
+		this.data = '\0';
+		this.proceedBCchanges = true;
+		this.height = -1;
+	}
+	
+	/**
+	 * Every node is passed through here before it is changed. Nodes can be
+	 * shared with snapshots of their tree (see EditTree.snapshot()), so a node
+	 * may only be changed in place if it is stamped with this tree's current
+	 * owner. Any other node is copied first, which means an edit copies just
+	 * the O(log n) nodes it touches. The node's cached text (see
+	 * EditTree.toString()) is dropped, since its subtree is about to change.
+	 * 
+	 * @return n, or a copy of it that this tree owns
+	 */
+	Node own(Node n) {
+		if(n == Node.NULL_NODE) {
+			return n;
+		}
+		if(n.owner == owner) {
+			n.text = null;
+			return n;
+		}
+		Node copy = n.copy();
+		copy.owner = owner;
+		return copy;
+	}
+	
+	/**
+	 * Makes a leaf stamped with this tree's owner.
+	 */
+	Node newNode(char ch) {
+		return newNode(ch, Node.NULL_NODE, Node.NULL_NODE, 0, Node.Code.SAME);
+	}
+	
+	/**
+	 * Makes a node stamped with this tree's owner, of the class the tree is
+	 * made of (see counted and summaries), and pulls it (see Node.pull()),
+	 * so its children have to be up to date.
+	 */
+	Node newNode(char ch, Node left, Node right, int rank, Node.Code balance) {
+		Node node;
+		if(summaries != null) {
+			node = new SummarizedNode(ch, left, right, rank, balance, summaries);
+		}
+		else if(counted) {
+			node = new CountedNode(ch, left, right, rank, balance);
+		}
+		else {
+			node = new Node(ch, left, right, rank, balance);
+		}
+		node.owner = owner;
+		node.pull();
+		return node;
+	}
+	
+	/**
+	 * Gives this tree a new owner stamp, so none of the nodes it has now will be
+	 * changed in place again. Needed whenever they may become reachable from a
+	 * snapshot: when one is taken, and when concat() takes in nodes of a tree
+	 * that may share some with one. Nodes that split() or delete() move to
+	 * another tree don't need it, since that tree has an owner of its own and
+	 * this one can't reach them any more.
+	 */
+	void newOwner() {
+		this.owner = new Object();
 	}
 }
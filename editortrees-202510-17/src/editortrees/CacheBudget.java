@@ -0,0 +1,11 @@
+package editortrees;
+
+/**
+ * How many characters the texts cached by EditTree.toString() may add up to,
+ * and how many the current call has used so far (see Node.appendCached()).
+ */
+public class CacheBudget {
+	long limit;
+	long used;
+	boolean readOnly; // for snapshots: use the cached texts, but never change them
+}
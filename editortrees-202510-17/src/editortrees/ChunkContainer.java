@@ -0,0 +1,26 @@
+package editortrees;
+
+public class ChunkContainer extends BContainer {
+	ChunkNode removed; // node taken out of the tree by a block merge or a deletion
+	// the block ChunkNode.removeBlock() took out
+	char[] removedChars;
+	int removedLength;
+	// if a delete left its block sparse, the block's length and where in it the
+	// character was deleted; sparseLength is 0 otherwise
+	int sparseLength;
+	int sparseOffset;
+	
+	public ChunkContainer() {
+		super(false, 0);
+	}
+
+	@Override
+	void reset() {
+		super.reset();
+		removed = null;
+		removedChars = null;
+		removedLength = 0;
+		sparseLength = 0;
+		sparseOffset = 0;
+	}
+}
@@ -0,0 +1,493 @@
+package editortrees;
+
+import editortrees.Node.Code;
+
+/**
+ * A node in a height-balanced tree with rank whose element is a bounded block
+ * of characters instead of a single one. The rank is expressed in characters:
+ * it is the number of characters stored in the left subtree, so a position is
+ * found the same way as in Node, just skipping a whole block at each node.
+ *
+ * A block is never empty. It is split in two when an insert finds it full.
+ * When a delete leaves it less than a quarter full, ChunkedEditTree merges it
+ * into the block before or after it, if either has room. Those blocks may be
+ * anywhere in the tree, so no two neighbouring blocks stay sparse.
+ */
+public class ChunkNode {
+
+	char[] chars;
+	int length; // number of characters used in chars
+	ChunkNode left, right;
+	int rank; // number of characters in the left subtree
+	Code balance;
+
+	static final ChunkNode NULL_NODE = new ChunkNode();
+
+	private ChunkNode() {
+		this.chars = new char[0];
+		this.balance = Code.SAME;
+	}
+
+	public ChunkNode(char[] chars, int length, ChunkNode left, ChunkNode right, int rank, Code balance) {
+		this.chars = chars;
+		this.length = length;
+		this.left = left;
+		this.right = right;
+		this.rank = rank;
+		this.balance = balance;
+	}
+
+	public ChunkNode(char ch, int capacity) {
+		this(new char[capacity], 1, NULL_NODE, NULL_NODE, 0, Code.SAME);
+		chars[0] = ch;
+	}
+
+	/**
+	 * @return true if this block is less than a quarter full, so it should be
+	 *         merged with a neighbour when possible.
+	 */
+	private boolean isSparse() {
+		return length < chars.length / 4;
+	}
+
+	int slowHeight() {
+		if(this == NULL_NODE) {
+			return -1;
+		}
+		return Math.max(left.slowHeight(), right.slowHeight()) + 1;
+	}
+
+	public int slowSize() {
+		if(this == NULL_NODE) {
+			return 0;
+		}
+		return left.slowSize() + right.slowSize() + length;
+	}
+
+	public int nodeCount() {
+		if(this == NULL_NODE) {
+			return 0;
+		}
+		return left.nodeCount() + right.nodeCount() + 1;
+	}
+
+	public void InOrderToString(StringBuilder result) {
+		if(this == NULL_NODE)
+			return;
+		left.InOrderToString(result);
+		result.append(chars, 0, length);
+		right.InOrderToString(result);
+	}
+
+	/**
+	 * Single left rotation helper method
+	 * @param curr
+	 * @return new root node
+	 */
+	private ChunkNode singleLeft(ChunkNode curr) {
+		ChunkNode newRoot = curr.right;
+		curr.right = newRoot.left;
+		newRoot.left = curr;
+		curr.balance = Code.SAME;
+		newRoot.balance = Code.SAME;
+		// the new root now also has curr and curr's left subtree on its left
+		newRoot.rank = newRoot.rank + curr.rank + curr.length;
+		return newRoot;
+	}
+
+	/**
+	 * Single right rotation helper method
+	 * @param curr
+	 * @return new root node
+	 */
+	private ChunkNode singleRight(ChunkNode curr) {
+		ChunkNode newRoot = curr.left;
+		curr.left = newRoot.right;
+		newRoot.right = curr;
+		curr.balance = Code.SAME;
+		newRoot.balance = Code.SAME;
+		curr.rank = curr.rank - newRoot.rank - newRoot.length;
+		return newRoot;
+	}
+
+	private ChunkNode doubleLeftRotation(BContainer b) {
+		Code tempBalanceOfC = this.right.left.balance;
+		this.right = singleRight(this.right);
+		ChunkNode temp = singleLeft(this);
+		b.rotCount += 2;
+		if(tempBalanceOfC == Code.LEFT) {
+			temp.right.balance = Code.RIGHT;
+		}
+		else if(tempBalanceOfC == Code.RIGHT) {
+			temp.left.balance = Code.LEFT;
+		}
+		return temp;
+	}
+
+	private ChunkNode doubleRightRotation(BContainer b) {
+		Code tempBalanceOfC = this.left.right.balance;
+		this.left = singleLeft(this.left);
+		ChunkNode temp = singleRight(this);
+		b.rotCount += 2;
+		if(tempBalanceOfC == Code.LEFT) {
+			temp.right.balance = Code.RIGHT;
+		}
+		else if(tempBalanceOfC == Code.RIGHT) {
+			temp.left.balance = Code.LEFT;
+		}
+		return temp;
+	}
+
+	public ChunkNode add(char ch, int pos, int capacity, BContainer b) {
+		if(this == NULL_NODE) {
+			return new ChunkNode(ch, capacity);
+		}
+		if(pos < rank) { // add to left
+			rank++;
+			left = left.add(ch, pos, capacity, b);
+			return getLeftBalanced(b);
+		}
+		if(pos > rank + length) { // add to right
+			right = right.add(ch, pos - rank - length, capacity, b);
+			return getRightBalanced(b);
+		}
+		int offset = pos - rank;
+		if(length < chars.length) {
+			// room in this block, so the shape of the tree does not change
+			insertAt(ch, offset);
+			b.isBalanced = true;
+			return this;
+		}
+		// split the full block: the second half becomes the in-order successor
+		int half = length / 2;
+		char[] tailChars = new char[chars.length];
+		System.arraycopy(chars, half, tailChars, 0, length - half);
+		ChunkNode tail = new ChunkNode(tailChars, length - half, NULL_NODE, NULL_NODE, 0, Code.SAME);
+		length = half;
+		if(offset <= half) {
+			insertAt(ch, offset);
+		}
+		else {
+			tail.insertAt(ch, offset - half);
+		}
+		right = right.addFirst(tail, b);
+		return getRightBalanced(b);
+	}
+
+	private void insertAt(char ch, int offset) {
+		System.arraycopy(chars, offset, chars, offset + 1, length - offset);
+		chars[offset] = ch;
+		length++;
+	}
+
+	// adds a whole block before every other block of this subtree
+	private ChunkNode addFirst(ChunkNode node, BContainer b) {
+		if(this == NULL_NODE) {
+			return node;
+		}
+		rank += node.length;
+		left = left.addFirst(node, b);
+		return getLeftBalanced(b);
+	}
+
+	private ChunkNode getRightBalanced(BContainer b) {
+		if(b.isBalanced) {
+			return this;
+		}
+		if(balance == Code.RIGHT && right.balance == Code.LEFT) {
+			b.isBalanced = true;
+			return doubleLeftRotation(b);
+		}
+		if(balance == Code.SAME) {
+			balance = Code.RIGHT;
+		}
+		else if(balance == Code.LEFT) {
+			balance = Code.SAME;
+			b.isBalanced = true;
+		}
+		else {
+			b.rotCount++;
+			b.isBalanced = true;
+			return singleLeft(this);
+		}
+		return this;
+	}
+
+	private ChunkNode getLeftBalanced(BContainer b) {
+		if(b.isBalanced) {
+			return this;
+		}
+		if(balance == Code.LEFT && left.balance == Code.RIGHT) {
+			b.isBalanced = true;
+			return doubleRightRotation(b);
+		}
+		if(balance == Code.SAME) {
+			balance = Code.LEFT;
+		}
+		else if(balance == Code.RIGHT) {
+			balance = Code.SAME;
+			b.isBalanced = true;
+		}
+		else {
+			b.rotCount++;
+			b.isBalanced = true;
+			return singleRight(this);
+		}
+		return this;
+	}
+
+	public char get(int pos) {
+		ChunkNode curr = this;
+		while(true) {
+			if(pos < curr.rank) {
+				curr = curr.left;
+			}
+			else if(pos >= curr.rank + curr.length) {
+				pos -= curr.rank + curr.length;
+				curr = curr.right;
+			}
+			else {
+				return curr.chars[pos - curr.rank];
+			}
+		}
+	}
+
+	/*
+	 * Same as Node.InOrderGetToString, except that a node contributes the part
+	 * of its block that overlaps [pos, pos+length-1].
+	 */
+	public void InOrderGetToString(StringBuilder result, int pos, int count, int currentPos) {
+		if(this == NULL_NODE) {
+			return;
+		}
+		int thisPos = currentPos + rank;
+		if(pos < thisPos) {
+			left.InOrderGetToString(result, pos, count, currentPos);
+		}
+		int from = Math.max(pos, thisPos);
+		int to = Math.min(pos + count, thisPos + length);
+		if(from < to) {
+			result.append(chars, from - thisPos, to - from);
+		}
+		if(thisPos + length < pos + count) {
+			right.InOrderGetToString(result, pos, count, thisPos + length);
+		}
+	}
+
+	public ChunkNode delete(int pos, BContainer b) {
+		if(pos < rank) {
+			rank--;
+			left = left.delete(pos, b);
+			return getDeleteLeftBalance(b);
+		}
+		if(pos >= rank + length) {
+			right = right.delete(pos - rank - length, b);
+			return getDeleteRightBalance(b);
+		}
+		int offset = pos - rank;
+		b.data = chars[offset];
+		System.arraycopy(chars, offset + 1, chars, offset, length - offset - 1);
+		length--;
+		if(length == 0) {
+			return removeSelf(b);
+		}
+		if(isSparse()) {
+			((ChunkContainer) b).sparseOffset = offset;
+			((ChunkContainer) b).sparseLength = length;
+		}
+		b.isBalanced = true;
+		return this;
+	}
+
+	// takes this node out of the tree, when its block is empty or merged away
+	private ChunkNode removeSelf(BContainer b) {
+		if(left == NULL_NODE) {
+			return right;
+		}
+		if(right == NULL_NODE) {
+			return left;
+		}
+		// hibbard deletion with successor: move the successor's block here
+		right = right.removeFirst(b);
+		ChunkNode successor = ((ChunkContainer) b).removed;
+		chars = successor.chars;
+		length = successor.length;
+		return getDeleteRightBalance(b);
+	}
+
+	/**
+	 * @return the length of the block that holds the character at pos
+	 */
+	int blockLengthAt(int pos) {
+		ChunkNode curr = this;
+		while(true) {
+			if(pos < curr.rank) {
+				curr = curr.left;
+			}
+			else if(pos >= curr.rank + curr.length) {
+				pos -= curr.rank + curr.length;
+				curr = curr.right;
+			}
+			else {
+				return curr.length;
+			}
+		}
+	}
+
+	/**
+	 * Takes the node whose block starts at pos out of this subtree, and leaves
+	 * its characters in the container (removedChars), rebalancing like
+	 * delete().
+	 */
+	ChunkNode removeBlock(int pos, ChunkContainer b) {
+		if(pos < rank) {
+			left = left.removeBlock(pos, b);
+			rank -= b.removedLength;
+			return getDeleteLeftBalance(b);
+		}
+		if(pos > rank) {
+			right = right.removeBlock(pos - rank - length, b);
+			return getDeleteRightBalance(b);
+		}
+		char[] blockChars = chars;
+		int blockLength = length;
+		ChunkNode result = removeSelf(b);
+		b.removedChars = blockChars;
+		b.removedLength = blockLength;
+		return result;
+	}
+
+	/**
+	 * Adds the first count characters of block to the block that holds the
+	 * character at pos: after its characters if atEnd is set, before them
+	 * otherwise. That block must have room for them, so the shape of the tree
+	 * doesn't change.
+	 */
+	void spliceInto(int pos, char[] block, int count, boolean atEnd) {
+		ChunkNode curr = this;
+		while(true) {
+			if(pos < curr.rank) {
+				curr.rank += count;
+				curr = curr.left;
+			}
+			else if(pos >= curr.rank + curr.length) {
+				pos -= curr.rank + curr.length;
+				curr = curr.right;
+			}
+			else {
+				break;
+			}
+		}
+		if(atEnd) {
+			System.arraycopy(block, 0, curr.chars, curr.length, count);
+		}
+		else {
+			System.arraycopy(curr.chars, 0, curr.chars, count, curr.length);
+			System.arraycopy(block, 0, curr.chars, 0, count);
+		}
+		curr.length += count;
+	}
+
+	// removes the first node of this subtree and leaves it in the container
+	private ChunkNode removeFirst(BContainer b) {
+		if(left == NULL_NODE) {
+			((ChunkContainer) b).removed = this;
+			return right;
+		}
+		left = left.removeFirst(b);
+		rank -= ((ChunkContainer) b).removed.length;
+		return getDeleteLeftBalance(b);
+	}
+
+	/**
+	 * Rebalances after the left subtree may have become shorter. The container's
+	 * isBalanced flag is set as soon as the height of this subtree is known not
+	 * to have changed, which stops the retracing.
+	 */
+	private ChunkNode getDeleteLeftBalance(BContainer b) {
+		if(b.isBalanced) {
+			return this;
+		}
+		if(balance == Code.LEFT) {
+			balance = Code.SAME;
+		}
+		else if(balance == Code.SAME) {
+			balance = Code.RIGHT;
+			b.isBalanced = true;
+		}
+		else if(right.balance == Code.LEFT) {
+			return doubleLeftRotation(b);
+		}
+		else if(right.balance == Code.RIGHT) {
+			b.rotCount++;
+			return singleLeft(this);
+		}
+		else { // edge case: the rotation does not change the height
+			b.rotCount++;
+			ChunkNode temp = singleLeft(this);
+			temp.balance = Code.LEFT;
+			temp.left.balance = Code.RIGHT;
+			b.isBalanced = true;
+			return temp;
+		}
+		return this;
+	}
+
+	private ChunkNode getDeleteRightBalance(BContainer b) {
+		if(b.isBalanced) {
+			return this;
+		}
+		if(balance == Code.RIGHT) {
+			balance = Code.SAME;
+		}
+		else if(balance == Code.SAME) {
+			balance = Code.LEFT;
+			b.isBalanced = true;
+		}
+		else if(left.balance == Code.RIGHT) {
+			return doubleRightRotation(b);
+		}
+		else if(left.balance == Code.LEFT) {
+			b.rotCount++;
+			return singleRight(this);
+		}
+		else { // edge case
+			b.rotCount++;
+			ChunkNode temp = singleRight(this);
+			temp.balance = Code.RIGHT;
+			temp.right.balance = Code.LEFT;
+			b.isBalanced = true;
+			return temp;
+		}
+		return this;
+	}
+
+	public LeftTreeSize rankMatchesLeftSize() {
+		if(this == NULL_NODE) {
+			return new LeftTreeSize(0, true);
+		}
+		LeftTreeSize leftRank = left.rankMatchesLeftSize();
+		LeftTreeSize rightRank = right.rankMatchesLeftSize();
+		int size = leftRank.size + rightRank.size + length;
+		boolean isEqual = leftRank.rankEqualSize && rightRank.rankEqualSize && rank == leftRank.size
+				&& length > 0;
+		return new LeftTreeSize(size, isEqual);
+	}
+
+	public BalanceCodeChecker checkBalanceCodes() {
+		if(this == NULL_NODE) {
+			return new BalanceCodeChecker(true, -1);
+		}
+		BalanceCodeChecker leftTree = left.checkBalanceCodes();
+		BalanceCodeChecker rightTree = right.checkBalanceCodes();
+		int height = Math.max(leftTree.height, rightTree.height) + 1;
+		if(!(leftTree.isCorrect && rightTree.isCorrect)) {
+			return new BalanceCodeChecker(false, height);
+		}
+		boolean isCorrect = (leftTree.height == rightTree.height && balance == Code.SAME)
+				|| (leftTree.height > rightTree.height && balance == Code.LEFT)
+				|| (leftTree.height < rightTree.height && balance == Code.RIGHT);
+		return new BalanceCodeChecker(isCorrect, height);
+	}
+
+}
@@ -0,0 +1,235 @@
+package editortrees;
+
+/**
+ * A height-balanced tree with rank, like EditTree, whose nodes each hold a block
+ * of up to capacity characters (see ChunkNode). It has the same public
+ * operations and semantics as EditTree, but a document of n characters needs
+ * roughly n / capacity nodes instead of n, and never more than about
+ * 8n / capacity (see mergeSparse()), so large documents take far less memory
+ * and the tree is much shallower.
+ *
+ * Ranks count characters, so ranksMatchLeftSubtreeSize() checks that every
+ * rank equals the number of characters in the node's left subtree.
+ */
+public class ChunkedEditTree {
+
+	/** Block size used by the constructors that don't take one. */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	ChunkNode root;
+	private int size;
+	private final int capacity;
+	int rotCount;
+	// reused by every add and delete, see BContainer
+	private final ChunkContainer isBalanced = new ChunkContainer();
+
+	/**
+	 * Construct an empty tree
+	 */
+	public ChunkedEditTree() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Construct an empty tree whose blocks hold up to capacity characters
+	 *
+	 * @param capacity
+	 */
+	public ChunkedEditTree(int capacity) {
+		if(capacity < 4) {
+			throw new IllegalArgumentException("capacity must be at least 4");
+		}
+		this.capacity = capacity;
+		root = ChunkNode.NULL_NODE;
+		size = 0;
+	}
+
+	/**
+	 * Create a tree whose toString is s, in O(N) time. Every block is filled to
+	 * capacity, except the last one.
+	 *
+	 * @param s
+	 */
+	public ChunkedEditTree(String s) {
+		this(s, DEFAULT_CAPACITY);
+	}
+
+	public ChunkedEditTree(String s, int capacity) {
+		this(capacity);
+		int blocks = (s.length() + capacity - 1) / capacity;
+		root = TreeMakerWString(s, 0, blocks - 1);
+		size = s.length();
+	}
+
+	// builds blocks beg..end (inclusive) the same way EditTree does for characters
+	private ChunkNode TreeMakerWString(String s, int beg, int end) {
+		if(beg > end) {
+			return ChunkNode.NULL_NODE;
+		}
+		int middle = (beg + end) / 2;
+		ChunkNode left = TreeMakerWString(s, beg, middle - 1);
+		ChunkNode right = TreeMakerWString(s, middle + 1, end);
+		int from = middle * capacity;
+		int length = Math.min(capacity, s.length() - from);
+		char[] chars = new char[capacity];
+		s.getChars(from, from + length, chars, 0);
+		// the left half never has more blocks than the right half, so the right
+		// side is the taller one whenever the heights differ
+		int leftHeight = height(middle - beg);
+		int rightHeight = height(end - middle);
+		Node.Code balance = leftHeight == rightHeight ? Node.Code.SAME : Node.Code.RIGHT;
+		return new ChunkNode(chars, length, left, right, (middle - beg) * capacity, balance);
+	}
+
+	// height of a tree with count nodes built by TreeMakerWString
+	private static int height(int count) {
+		return 31 - Integer.numberOfLeadingZeros(count);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder(size);
+		root.InOrderToString(result);
+		return result.toString();
+	}
+
+	/**
+	 * @return the number of characters in this tree
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return the number of blocks (nodes) used to hold the characters
+	 */
+	public int nodeCount() {
+		return root.nodeCount();
+	}
+
+	/**
+	 * @param ch character to add to the end of this tree.
+	 */
+	public void add(char ch) {
+		add(ch, size);
+	}
+
+	/**
+	 * @param ch  character to add
+	 * @param pos character added in this in-order position. Valid positions range
+	 *            from 0 to the size of the tree, inclusive.
+	 * @throws IndexOutOfBoundsException if pos is negative or too large for this
+	 *                                   tree.
+	 */
+	public void add(char ch, int pos) throws IndexOutOfBoundsException {
+		if(pos < 0 || pos > size) {
+			throw new IndexOutOfBoundsException();
+		}
+		isBalanced.reset();
+		root = root.add(ch, pos, capacity, isBalanced);
+		rotCount += isBalanced.rotCount;
+		size++;
+	}
+
+	/**
+	 * @param pos position in the tree
+	 * @return the character at that position
+	 * @throws IndexOutOfBoundsException if pos is negative or too big.
+	 */
+	public char get(int pos) throws IndexOutOfBoundsException {
+		if(pos < 0 || pos >= size) {
+			throw new IndexOutOfBoundsException();
+		}
+		return root.get(pos);
+	}
+
+	/**
+	 * @param pos    location of the beginning of the string to retrieve
+	 * @param length length of the string to retrieve
+	 * @return string of length that starts in position pos
+	 * @throws IndexOutOfBoundsException unless both pos and pos+length-1 are
+	 *                                   legitimate indexes within this tree.
+	 */
+	public String get(int pos, int length) throws IndexOutOfBoundsException {
+		if(pos < 0 || length < 0 || pos + length > size) {
+			throw new IndexOutOfBoundsException();
+		}
+		StringBuilder result = new StringBuilder(length);
+		root.InOrderGetToString(result, pos, length, 0);
+		return result.toString();
+	}
+
+	/**
+	 * @param pos position of character to delete from this tree
+	 * @return the character that is deleted
+	 * @throws IndexOutOfBoundsException
+	 */
+	public char delete(int pos) throws IndexOutOfBoundsException {
+		if(pos < 0 || pos >= size) {
+			throw new IndexOutOfBoundsException();
+		}
+		isBalanced.reset();
+		root = root.delete(pos, isBalanced);
+		rotCount += isBalanced.rotCount;
+		size--;
+		char deleted = isBalanced.data;
+		if(isBalanced.sparseLength > 0) {
+			mergeSparse(pos - isBalanced.sparseOffset, isBalanced.sparseLength);
+		}
+		return deleted;
+	}
+
+	/**
+	 * Merges the length characters of the sparse block that starts at start
+	 * into the block before it or, failing that, the one after it, if one of
+	 * them has room, in O(log n) time: the sparse block's node is taken out of
+	 * the tree like a deleted node, and its characters are copied into its
+	 * neighbour. Neighbours of a sparse block that can't be merged are more
+	 * than three quarters full, so no two neighbouring blocks are sparse, and
+	 * a tree of n characters never has more than about 8n / capacity nodes.
+	 */
+	private void mergeSparse(int start, int length) {
+		boolean intoPrevious;
+		if(start > 0 && root.blockLengthAt(start - 1) + length <= capacity) {
+			intoPrevious = true;
+		}
+		else if(start + length < size && root.blockLengthAt(start + length) + length <= capacity) {
+			intoPrevious = false;
+		}
+		else {
+			return;
+		}
+		isBalanced.reset();
+		root = root.removeBlock(start, isBalanced);
+		rotCount += isBalanced.rotCount;
+		root.spliceInto(intoPrevious ? start - 1 : start, isBalanced.removedChars, length, intoPrevious);
+	}
+
+	public int totalRotationCount() {
+		return rotCount;
+	}
+
+	public int slowHeight() {
+		return root.slowHeight();
+	}
+
+	public int slowSize() {
+		return root.slowSize();
+	}
+
+	/**
+	 * @return True iff each node's rank equals the number of characters in its
+	 *         left subtree, and no block is empty.
+	 */
+	public boolean ranksMatchLeftSubtreeSize() {
+		return root.rankMatchesLeftSize().rankEqualSize;
+	}
+
+	/**
+	 * @return True iff each node's balance code is correct.
+	 */
+	public boolean balanceCodesAreCorrect() {
+		return root.checkBalanceCodes().isCorrect;
+	}
+
+}
@@ -0,0 +1,164 @@
+package editortrees;
+
+import static editortrees.TestUtil.assertValid;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test cases for the block-per-node ChunkedEditTree. Small capacities are used
+ * so that blocks are split and merged often.
+ */
+public class ChunkedEditTreeTest {
+
+	@Test
+	public void testEmpty() {
+		ChunkedEditTree t = new ChunkedEditTree();
+		assertValid("", t);
+		assertEquals(-1, t.slowHeight());
+		assertEquals(0, t.nodeCount());
+	}
+
+	@Test
+	public void testAppendFillsBlocks() {
+		ChunkedEditTree t = new ChunkedEditTree(4);
+		for(char c = 'a'; c <= 'z'; c++) {
+			t.add(c);
+		}
+		assertValid("abcdefghijklmnopqrstuvwxyz", t);
+		assertTrue(t.nodeCount() < 26);
+		for(int i = 0; i < 26; i++) {
+			assertEquals((char) ('a' + i), t.get(i));
+		}
+	}
+
+	@Test
+	public void testStringConstructor() {
+		String s = "The quick brown fox jumps over the lazy dog";
+		for(int capacity = 4; capacity <= 64; capacity *= 2) {
+			ChunkedEditTree t = new ChunkedEditTree(s, capacity);
+			assertValid(s, t);
+			assertEquals((s.length() + capacity - 1) / capacity, t.nodeCount());
+			assertEquals("quick brown", t.get(4, 11));
+		}
+		assertValid("", new ChunkedEditTree("", 4));
+	}
+
+	@Test
+	public void testInvalidPositions() {
+		ChunkedEditTree t = new ChunkedEditTree("abc", 4);
+		try {
+			t.add('x', 4);
+			fail("Did not throw IndexOutOfBoundsException");
+		} catch(IndexOutOfBoundsException e) {
+			// success
+		}
+		try {
+			t.get(3);
+			fail("Did not throw IndexOutOfBoundsException");
+		} catch(IndexOutOfBoundsException e) {
+			// success
+		}
+		try {
+			t.delete(-1);
+			fail("Did not throw IndexOutOfBoundsException");
+		} catch(IndexOutOfBoundsException e) {
+			// success
+		}
+		assertValid("abc", t);
+	}
+
+	@Test
+	public void testDeleteEverything() {
+		ChunkedEditTree t = new ChunkedEditTree("abcdefghijklmnopqrstuvwxyz", 4);
+		StringBuilder expected = new StringBuilder(t.toString());
+		while(t.size() > 0) {
+			int pos = t.size() / 2;
+			assertEquals(expected.charAt(pos), t.delete(pos));
+			expected.deleteCharAt(pos);
+			assertValid(expected.toString(), t);
+		}
+		assertEquals(0, t.nodeCount());
+	}
+
+	@Test
+	public void testRandomEditsMatchStringBuilder() {
+		Random random = new Random(42);
+		for(int capacity : new int[] { 4, 8, 64 }) {
+			ChunkedEditTree t = new ChunkedEditTree(capacity);
+			StringBuilder expected = new StringBuilder();
+			for(int i = 0; i < 5000; i++) {
+				if(expected.length() > 0 && random.nextInt(3) == 0) {
+					int pos = random.nextInt(expected.length());
+					assertEquals(expected.charAt(pos), t.delete(pos));
+					expected.deleteCharAt(pos);
+				}
+				else {
+					int pos = random.nextInt(expected.length() + 1);
+					char c = (char) ('a' + random.nextInt(26));
+					t.add(c, pos);
+					expected.insert(pos, c);
+				}
+				if(i % 50 == 0) {
+					assertValid(expected.toString(), t);
+				}
+			}
+			assertValid(expected.toString(), t);
+			int pos = expected.length() / 3;
+			assertEquals(expected.substring(pos, pos + 100), t.get(pos, 100));
+		}
+	}
+
+	@Test
+	public void testFewerNodesThanCharacters() {
+		ChunkedEditTree t = new ChunkedEditTree();
+		Random random = new Random(7);
+		for(int i = 0; i < 100000; i++) {
+			t.add((char) ('a' + random.nextInt(26)), random.nextInt(t.size() + 1));
+		}
+		assertTrue(t.ranksMatchLeftSubtreeSize());
+		assertTrue(t.balanceCodesAreCorrect());
+		// blocks are at least half full after a split
+		assertTrue(t.nodeCount() <= 2 * 100000 / ChunkedEditTree.DEFAULT_CAPACITY + 1);
+	}
+
+	@Test
+	public void testSparseBlocksMergeWithNeighbours() {
+		int capacity = 16;
+		int blocks = 1023;
+		Random random = new Random(11);
+		StringBuilder expected = new StringBuilder();
+		for(int i = 0; i < blocks * capacity; i++) {
+			expected.append((char) ('a' + random.nextInt(26)));
+		}
+		ChunkedEditTree t = new ChunkedEditTree(expected.toString(), capacity);
+		assertEquals(blocks, t.nodeCount());
+		// leave one character of every block, working back from the end so the
+		// positions of the blocks still to come don't move
+		for(int block = blocks - 1; block >= 0; block--) {
+			for(int i = 1; i < capacity; i++) {
+				int pos = block * capacity + 1;
+				assertEquals(expected.charAt(pos), t.delete(pos));
+				expected.deleteCharAt(pos);
+			}
+		}
+		assertValid(expected.toString(), t);
+		// no two neighbouring blocks are sparse, so every other block is at
+		// least a quarter full
+		assertTrue(t.nodeCount() <= 8 * t.size() / capacity + 1);
+
+		// and the same for deletes at random positions
+		while(t.size() > blocks / 4) {
+			int pos = random.nextInt(t.size());
+			assertEquals(expected.charAt(pos), t.delete(pos));
+			expected.deleteCharAt(pos);
+		}
+		assertValid(expected.toString(), t);
+		assertTrue(t.nodeCount() <= 8 * t.size() / capacity + 1);
+	}
+
+}
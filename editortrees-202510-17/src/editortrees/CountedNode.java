@@ -0,0 +1,260 @@
+package editortrees;
+
+/**
+ * A node of a tree made to count lines, code points and UTF-8 bytes (see
+ * EditTree(String, boolean)): besides what every node keeps, it counts them
+ * for its whole subtree, so EditTree can convert between positions and line
+ * numbers, code point indices and byte offsets in O(log n). Plain trees are
+ * made of plain Nodes and don't pay for the counts, in memory or in pull().
+ * Every node of a counted tree is a CountedNode, except for the NULL_NODE,
+ * whose counts the static ...In() methods give as 0.
+ */
+class CountedNode extends Node {
+	int newlines; // number of '\n' characters in this subtree
+	int codePoints; // number of code points in this subtree, a surrogate pair counting once
+	// whether this subtree starts with a low surrogate, or ends with a high one:
+	// then a pair may be split between it and its neighbour
+	boolean startsWithLow, endsWithHigh;
+	long utf8Bytes; // length of this subtree in UTF-8, see utf8Length()
+
+	CountedNode(char data, Node left, Node right, int rank, Code balance) {
+		super(data, left, right, rank, balance);
+	}
+
+	@Override
+	Node copy() {
+		Node copy = new CountedNode(data, left, right, rank, balance);
+		copy.copyCounts(this);
+		return copy;
+	}
+
+	@Override
+	void copyCounts(Node from) {
+		super.copyCounts(from);
+		CountedNode counted = (CountedNode) from;
+		newlines = counted.newlines;
+		codePoints = counted.codePoints;
+		startsWithLow = counted.startsWithLow;
+		endsWithHigh = counted.endsWithHigh;
+		utf8Bytes = counted.utf8Bytes;
+	}
+
+	@Override
+	void pull() {
+		super.pull();
+		newlines = newlinesIn(left) + newlinesIn(right) + (data == '\n' ? 1 : 0);
+		codePoints = codePointsIn(left) + 1 + codePointsIn(right);
+		boolean low = Character.isLowSurrogate(data);
+		boolean high = Character.isHighSurrogate(data);
+		utf8Bytes = utf8BytesIn(left) + utf8Length(data) + utf8BytesIn(right);
+		if(endsWithHigh(left) && low) { // a pair across the left junction
+			codePoints--;
+			utf8Bytes += 2;
+		}
+		if(high && startsWithLow(right)) {
+			codePoints--;
+			utf8Bytes += 2;
+		}
+		startsWithLow = left != NULL_NODE ? startsWithLow(left) : low;
+		endsWithHigh = right != NULL_NODE ? endsWithHigh(right) : high;
+	}
+
+	static int newlinesIn(Node n) {
+		return n == NULL_NODE ? 0 : ((CountedNode) n).newlines;
+	}
+
+	static int codePointsIn(Node n) {
+		return n == NULL_NODE ? 0 : ((CountedNode) n).codePoints;
+	}
+
+	static long utf8BytesIn(Node n) {
+		return n == NULL_NODE ? 0 : ((CountedNode) n).utf8Bytes;
+	}
+
+	static boolean startsWithLow(Node n) {
+		return n != NULL_NODE && ((CountedNode) n).startsWithLow;
+	}
+
+	static boolean endsWithHigh(Node n) {
+		return n != NULL_NODE && ((CountedNode) n).endsWithHigh;
+	}
+
+	/**
+	 * @return the number of newlines among the first pos characters of the
+	 *         tree rooted at n, in O(log n)
+	 */
+	static int newlinesBefore(Node n, int pos) {
+		int count = 0;
+		while(n != NULL_NODE) {
+			if(pos <= n.rank) {
+				n = n.left;
+			}
+			else {
+				count += newlinesIn(n.left) + (n.data == '\n' ? 1 : 0);
+				pos = pos - (n.rank+1);
+				n = n.right;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the position of the k-th newline, counting from 1, in the tree
+	 *         rooted at n, which must have at least k; in O(log n)
+	 */
+	static int positionOfNewline(Node n, int k) {
+		int pos = 0;
+		while(true) {
+			int inLeft = newlinesIn(n.left);
+			if(k <= inLeft) {
+				n = n.left;
+				continue;
+			}
+			k -= inLeft;
+			if(n.data == '\n') {
+				if(k == 1) {
+					return pos + n.rank;
+				}
+				k--;
+			}
+			pos += n.rank + 1;
+			n = n.right;
+		}
+	}
+
+	/**
+	 * @return the number of code points that start among the first pos
+	 *         characters of the tree rooted at n, in O(log n). The low half of
+	 *         a surrogate pair doesn't start one; an unpaired surrogate does.
+	 */
+	static int codePointsBefore(Node n, int pos) {
+		int count = 0;
+		boolean afterHigh = false; // whether the characters counted so far end with a high surrogate
+		while(n != NULL_NODE) {
+			if(pos <= n.rank) {
+				n = n.left;
+				continue;
+			}
+			count += codePointsIn(n.left);
+			if(afterHigh && startsWithLow(n.left)) {
+				count--;
+			}
+			if(n.left != NULL_NODE) {
+				afterHigh = endsWithHigh(n.left);
+			}
+			if(!(afterHigh && Character.isLowSurrogate(n.data))) {
+				count++;
+			}
+			afterHigh = Character.isHighSurrogate(n.data);
+			pos = pos - (n.rank+1);
+			n = n.right;
+		}
+		return count;
+	}
+
+	/**
+	 * @return the position of the character where code point k, counting
+	 *         from 0, starts in the tree rooted at n, which must have more than
+	 *         k code points; in O(log n)
+	 */
+	static int positionOfCodePoint(Node n, int k) {
+		int pos = 0;
+		boolean afterHigh = false;
+		while(true) {
+			int inLeft = codePointsIn(n.left) - (afterHigh && startsWithLow(n.left) ? 1 : 0);
+			if(k < inLeft) {
+				n = n.left;
+				continue;
+			}
+			k -= inLeft;
+			if(n.left != NULL_NODE) {
+				afterHigh = endsWithHigh(n.left);
+			}
+			if(!(afterHigh && Character.isLowSurrogate(n.data))) {
+				if(k == 0) {
+					return pos + n.rank;
+				}
+				k--;
+			}
+			afterHigh = Character.isHighSurrogate(n.data);
+			pos += n.rank + 1;
+			n = n.right;
+		}
+	}
+
+	/**
+	 * @return the number of bytes c takes in UTF-8 on its own. A surrogate
+	 *         takes 1, the '?' String.getBytes() puts in place of an unpaired
+	 *         one; a pair takes 4, so pull() adds 2 where a pair is joined.
+	 */
+	static int utf8Length(char c) {
+		if(c < 0x80) {
+			return 1;
+		}
+		if(c < 0x800) {
+			return 2;
+		}
+		return Character.isSurrogate(c) ? 1 : 3;
+	}
+
+	/**
+	 * @return the length in UTF-8 of the first pos characters of the tree
+	 *         rooted at n, taken on their own, in O(log n)
+	 */
+	static long utf8BytesBefore(Node n, int pos) {
+		long count = 0;
+		boolean afterHigh = false;
+		while(n != NULL_NODE) {
+			if(pos <= n.rank) {
+				n = n.left;
+				continue;
+			}
+			count += utf8BytesIn(n.left) + utf8Length(n.data);
+			if(afterHigh && startsWithLow(n.left)) {
+				count += 2;
+			}
+			if(n.left != NULL_NODE) {
+				afterHigh = endsWithHigh(n.left);
+			}
+			if(afterHigh && Character.isLowSurrogate(n.data)) {
+				count += 2;
+			}
+			afterHigh = Character.isHighSurrogate(n.data);
+			pos = pos - (n.rank+1);
+			n = n.right;
+		}
+		return count;
+	}
+
+	/**
+	 * @return the position of the character whose UTF-8 encoding holds byte
+	 *         b, counting from 0, in the tree rooted at n, which must be
+	 *         longer than b bytes; the high half for a byte of a surrogate
+	 *         pair. O(log n).
+	 */
+	static int positionOfUtf8Byte(Node n, long b) {
+		int pos = 0;
+		boolean afterHigh = false;
+		while(true) {
+			long inLeft = utf8BytesIn(n.left) + (afterHigh && startsWithLow(n.left) ? 2 : 0);
+			if(b < inLeft) {
+				n = n.left;
+				continue;
+			}
+			b -= inLeft;
+			if(n.left != NULL_NODE) {
+				afterHigh = endsWithHigh(n.left);
+			}
+			// the low half of a pair takes the pair's last 3 bytes
+			boolean pairEnd = afterHigh && Character.isLowSurrogate(n.data);
+			int length = pairEnd ? 3 : utf8Length(n.data);
+			if(b < length) {
+				return pos + n.rank - (pairEnd ? 1 : 0);
+			}
+			b -= length;
+			afterHigh = Character.isHighSurrogate(n.data);
+			pos += n.rank + 1;
+			n = n.right;
+		}
+	}
+}
@@ -12,6 +12,8 @@ import java.awt.geom.Line2D;
 import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import javax.swing.JComponent;
 import javax.swing.JFrame;
 
@@ -71,6 +73,10 @@ public class DisplayableBinaryTree extends JComponent {
 	private double nodeY;
 	private double angle;
 	private boolean goingCrazy;
+	// Nodes don't carry their own wrappers, so that trees that are never shown
+	// don't pay for them. They are made here, keyed by node identity, and
+	// rebuilt on every repaint since the tree may have changed in between.
+	private final Map<Node, DisplayableNodeWrapper> wrappers = new IdentityHashMap<>();
 
 	/**
 	 * Constructs a new displayable binary tree, set to default to the given window
@@ -203,13 +209,32 @@ public class DisplayableBinaryTree extends JComponent {
 		g2.fill(new Rectangle2D.Double(this.width - 20, 80, 40, 5));
 		g2.fill(new Rectangle2D.Double(this.width - 25, 90, 50, 5));
 		// // RAISE THE BAR ^^^^^
-		DisplayableNodeWrapper current = this.tree.root.displayableNodeWrapper;
+		this.wrappers.clear();
+		DisplayableNodeWrapper current = this.wrapNodes(this.tree.root);
 		// CURRENT.POINT = THE CENTER POINT, NOT THE UPPER LEFT CORNER
 		this.paintHelper(g2, current, this.nodeY);
 		this.lineHelper(g2, current);
 		// System.out.println("DONE");
 	}
 
+	/**
+	 * makes a wrapper for every node of the subtree
+	 * 
+	 * @param node
+	 * @return the wrapper of node
+	 */
+	private DisplayableNodeWrapper wrapNodes(Node node) {
+		DisplayableNodeWrapper wrapper = new DisplayableNodeWrapper(node, this.wrappers);
+		this.wrappers.put(node, wrapper);
+		if (node.hasLeft()) {
+			this.wrapNodes(node.left);
+		}
+		if (node.hasRight()) {
+			this.wrapNodes(node.right);
+		}
+		return wrapper;
+	}
+
 	/**
 	 * helper method to paint nodes
 	 * 
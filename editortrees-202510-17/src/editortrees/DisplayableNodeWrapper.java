@@ -5,6 +5,7 @@ import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Rectangle2D;
+import java.util.Map;
 
 /*
  * REQUIRES:
@@ -22,6 +23,8 @@ public class DisplayableNodeWrapper {
 	private Point.Double point;
 	private double radius;
 	private Node node;
+	// wrappers of the other nodes, owned by the DisplayableBinaryTree
+	private Map<Node, DisplayableNodeWrapper> wrappers;
 
 	// ******************************************************************************
 
@@ -29,11 +32,13 @@ public class DisplayableNodeWrapper {
 	 * only sets the graphical related fields
 	 * 
 	 * @param node
+	 * @param wrappers where the wrappers of the node's relatives are looked up
 	 */
-	public DisplayableNodeWrapper(Node node) {
+	public DisplayableNodeWrapper(Node node, Map<Node, DisplayableNodeWrapper> wrappers) {
 		this.point = null;
 		this.radius = -10;
 		this.node = node;
+		this.wrappers = wrappers;
 	}
 
 	/**
@@ -42,7 +47,7 @@ public class DisplayableNodeWrapper {
 	 */
 	public DisplayableNodeWrapper getLeft() {
 		if (this.node.left != Node.NULL_NODE) {
-			return this.node.left.displayableNodeWrapper;
+			return this.wrappers.get(this.node.left);
 		}
 		return null;
 	}
@@ -53,7 +58,7 @@ public class DisplayableNodeWrapper {
 	 */
 	public DisplayableNodeWrapper getRight() {
 		if (this.node.right != Node.NULL_NODE) {
-			return this.node.right.displayableNodeWrapper;
+			return this.wrappers.get(this.node.right);
 		}
 		return null;
 	}
@@ -63,7 +68,7 @@ public class DisplayableNodeWrapper {
 	 * @return
 	 */
 	public DisplayableNodeWrapper getParent() {
-		return this.node.getParent().displayableNodeWrapper;
+		return this.wrappers.get(this.node.getParent());
 	}
 	
 	public Node getNode() {
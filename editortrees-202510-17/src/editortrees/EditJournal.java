@@ -0,0 +1,263 @@
+package editortrees;
+
+import java.util.ArrayDeque;
+
+/**
+ * Undo and redo for an EditTree. All edits go through the journal, which
+ * applies them to the tree and records how to reverse them: an add is undone
+ * by deleting what was added, and a delete by adding back the characters it
+ * returned.
+ *
+ * Runs of single-character edits next to each other (typing, backspacing,
+ * forward deleting) are coalesced into one entry holding the whole range, so
+ * undo and redo replay each entry with one range operation, in O(k + log n)
+ * time for k characters, instead of one call per character.
+ *
+ * The entries are kept within a memory budget: when it is exceeded, the
+ * oldest undo entries are dropped.
+ */
+public class EditJournal {
+
+	/** Budget used by the constructor that doesn't take one: 16 MB. */
+	public static final long DEFAULT_BUDGET = 16L << 20;
+
+	// rough size of an Entry with its StringBuilder, not counting the characters
+	static final int ENTRY_BYTES = 64;
+
+	/**
+	 * One reversible edit: the characters of text were added at pos, or
+	 * deleted from pos.
+	 */
+	static class Entry {
+		final boolean added;
+		int pos;
+		final StringBuilder text;
+		// a run of backspaces: text holds the characters last to first
+		boolean backward;
+
+		Entry(boolean added, int pos, CharSequence text) {
+			this.added = added;
+			this.pos = pos;
+			this.text = new StringBuilder(text);
+		}
+
+		long bytes() {
+			return ENTRY_BYTES + 2L * text.length();
+		}
+
+		// the characters in document order
+		String text() {
+			if(backward) { // only reverse once, undo and redo both need this order
+				text.reverse();
+				backward = false;
+			}
+			return text.toString();
+		}
+	}
+
+	private final EditTree tree;
+	private final ArrayDeque<Entry> undo = new ArrayDeque<>();
+	private final ArrayDeque<Entry> redo = new ArrayDeque<>();
+	private final long budget;
+	private long bytes; // estimated memory held by the entries of both stacks
+	private boolean open; // whether the newest undo entry may still grow
+
+	/**
+	 * Construct a journal for edits to tree, with the default budget.
+	 *
+	 * @param tree
+	 */
+	public EditJournal(EditTree tree) {
+		this(tree, DEFAULT_BUDGET);
+	}
+
+	/**
+	 * Construct a journal for edits to tree. The tree must only be changed
+	 * through the journal from now on, or the entries won't match it anymore.
+	 *
+	 * @param tree   tree to edit
+	 * @param budget roughly how many bytes the entries may take up
+	 * @throws UnsupportedOperationException if tree is a snapshot
+	 */
+	public EditJournal(EditTree tree, long budget) {
+		if(tree.isReadOnly()) {
+			throw new UnsupportedOperationException("snapshots are read-only");
+		}
+		if(budget < 0) {
+			throw new IllegalArgumentException("budget must not be negative");
+		}
+		this.tree = tree;
+		this.budget = budget;
+	}
+
+	/**
+	 * @return the tree being edited. Read it, but don't change it directly.
+	 */
+	public EditTree tree() {
+		return tree;
+	}
+
+	/**
+	 * Adds ch at pos, see EditTree.add(char, int). Typing right after the
+	 * previous add extends its entry.
+	 */
+	public void add(char ch, int pos) throws IndexOutOfBoundsException {
+		tree.add(ch, pos);
+		Entry last = open ? undo.peekLast() : null;
+		if(last != null && last.added && pos == last.pos + last.text.length()) {
+			last.text.append(ch);
+			grow(2);
+		}
+		else {
+			record(new Entry(true, pos, String.valueOf(ch)));
+		}
+	}
+
+	/**
+	 * Adds s at pos, see EditTree.add(CharSequence, int). Gets an entry of its
+	 * own.
+	 */
+	public void add(CharSequence s, int pos) throws IndexOutOfBoundsException {
+		tree.add(s, pos);
+		if(s.length() > 0) {
+			record(new Entry(true, pos, s));
+			open = false;
+		}
+	}
+
+	/**
+	 * Deletes the character at pos, see EditTree.delete(int). Deleting at the
+	 * same position as the previous delete (forward delete), or just before it
+	 * (backspace), extends its entry.
+	 *
+	 * @return the character that is deleted
+	 */
+	public char delete(int pos) throws IndexOutOfBoundsException {
+		char ch = tree.delete(pos);
+		Entry last = open ? undo.peekLast() : null;
+		if(last != null && !last.added && pos == last.pos && !last.backward) {
+			last.text.append(ch);
+			grow(2);
+		}
+		else if(last != null && !last.added && pos == last.pos - 1
+				&& (last.backward || last.text.length() == 1)) {
+			last.backward = true;
+			last.pos = pos;
+			last.text.append(ch);
+			grow(2);
+		}
+		else {
+			record(new Entry(false, pos, String.valueOf(ch)));
+		}
+		return ch;
+	}
+
+	/**
+	 * Deletes length characters from pos, see EditTree.delete(int, int). Gets an
+	 * entry of its own.
+	 *
+	 * @return a new tree holding the deleted characters
+	 */
+	public EditTree delete(int pos, int length) throws IndexOutOfBoundsException {
+		EditTree removed = tree.delete(pos, length);
+		if(length > 0) {
+			record(new Entry(false, pos, removed.toString()));
+			open = false;
+		}
+		return removed;
+	}
+
+	/**
+	 * Ends the current run of edits, so the next edit starts a new entry even
+	 * if it is next to the previous one. Call it when the caret moves, for
+	 * example.
+	 */
+	public void endRun() {
+		open = false;
+	}
+
+	/**
+	 * Reverses the newest entry that hasn't been undone yet.
+	 *
+	 * @return false if there was nothing to undo
+	 */
+	public boolean undo() {
+		Entry e = undo.pollLast();
+		if(e == null) {
+			return false;
+		}
+		apply(e, !e.added);
+		redo.addLast(e);
+		open = false;
+		return true;
+	}
+
+	/**
+	 * Applies the most recently undone entry again.
+	 *
+	 * @return false if there was nothing to redo
+	 */
+	public boolean redo() {
+		Entry e = redo.pollLast();
+		if(e == null) {
+			return false;
+		}
+		apply(e, e.added);
+		undo.addLast(e);
+		open = false;
+		return true;
+	}
+
+	public boolean canUndo() {
+		return !undo.isEmpty();
+	}
+
+	public boolean canRedo() {
+		return !redo.isEmpty();
+	}
+
+	/**
+	 * @return the number of entries that can be undone
+	 */
+	public int undoCount() {
+		return undo.size();
+	}
+
+	/**
+	 * @return roughly how many bytes the entries take up now
+	 */
+	public long bytes() {
+		return bytes;
+	}
+
+	// one range operation per entry, however many characters it holds
+	private void apply(Entry e, boolean add) {
+		if(add) {
+			tree.add(e.text(), e.pos);
+		}
+		else {
+			tree.delete(e.pos, e.text.length());
+		}
+	}
+
+	// a new edit: whatever was undone can't be redone anymore
+	private void record(Entry e) {
+		while(!redo.isEmpty()) {
+			bytes -= redo.pollLast().bytes();
+		}
+		undo.addLast(e);
+		open = true;
+		grow(e.bytes());
+	}
+
+	private void grow(long added) {
+		bytes += added;
+		while(bytes > budget && !undo.isEmpty()) {
+			bytes -= undo.pollFirst().bytes();
+			if(undo.isEmpty()) {
+				open = false;
+			}
+		}
+	}
+
+}
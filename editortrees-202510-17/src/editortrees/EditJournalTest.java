@@ -0,0 +1,183 @@
+package editortrees;
+
+import static editortrees.TestUtil.assertValid;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test cases for undo and redo through EditJournal.
+ */
+public class EditJournalTest {
+
+	@Test
+	public void testTypingIsOneEntry() {
+		EditJournal journal = new EditJournal(new EditTree("ac"));
+		String typed = "hello";
+		for(int i = 0; i < typed.length(); i++) {
+			journal.add(typed.charAt(i), 1 + i);
+		}
+		assertValid("ahelloc", journal.tree());
+		assertEquals(1, journal.undoCount());
+		assertTrue(journal.undo());
+		assertValid("ac", journal.tree());
+		assertFalse(journal.undo());
+		assertTrue(journal.redo());
+		assertValid("ahelloc", journal.tree());
+		assertFalse(journal.redo());
+	}
+
+	@Test
+	public void testBackspaceAndForwardDeleteAreOneEntryEach() {
+		EditJournal journal = new EditJournal(new EditTree("abcdefghij"));
+		for(int pos = 6; pos >= 3; pos--) {
+			journal.delete(pos); // backspace over g, f, e, d
+		}
+		assertValid("abchij", journal.tree());
+		journal.endRun();
+		for(int i = 0; i < 2; i++) {
+			journal.delete(1); // forward delete b, c
+		}
+		assertValid("ahij", journal.tree());
+		assertEquals(2, journal.undoCount());
+		journal.undo();
+		assertValid("abchij", journal.tree());
+		journal.undo();
+		assertValid("abcdefghij", journal.tree());
+		journal.redo();
+		journal.redo();
+		assertValid("ahij", journal.tree());
+		journal.undo();
+		assertValid("abchij", journal.tree());
+	}
+
+	@Test
+	public void testEditsAfterUndoDropRedo() {
+		EditJournal journal = new EditJournal(new EditTree());
+		journal.add("abc", 0);
+		journal.add('d', 3);
+		journal.undo();
+		assertTrue(journal.canRedo());
+		journal.add('x', 0);
+		assertFalse(journal.canRedo());
+		assertValid("xabc", journal.tree());
+		// an undone run doesn't grow anymore
+		journal.undo();
+		journal.add('y', 0);
+		journal.add('z', 1);
+		journal.undo();
+		assertValid("abc", journal.tree());
+	}
+
+	@Test
+	public void testRandomEditsUndoAndRedoAll() {
+		Random random = new Random(3);
+		EditJournal journal = new EditJournal(new EditTree("start"));
+		StringBuilder expected = new StringBuilder("start");
+		int caret = 0;
+		for(int i = 0; i < 20000; i++) {
+			int op = random.nextInt(20);
+			if(op == 0 || caret > expected.length()) {
+				caret = random.nextInt(expected.length() + 1);
+				journal.endRun();
+			}
+			else if(op < 12) {
+				char c = (char) ('a' + random.nextInt(26));
+				journal.add(c, caret);
+				expected.insert(caret++, c);
+			}
+			else if(op < 16 && caret > 0) {
+				caret--;
+				assertEquals(expected.charAt(caret), journal.delete(caret));
+				expected.deleteCharAt(caret);
+			}
+			else if(op < 19 && caret < expected.length()) {
+				assertEquals(expected.charAt(caret), journal.delete(caret));
+				expected.deleteCharAt(caret);
+			}
+			else if(caret < expected.length()) {
+				int length = random.nextInt(expected.length() - caret + 1);
+				assertEquals(expected.substring(caret, caret + length), journal.delete(caret, length).toString());
+				expected.delete(caret, caret + length);
+			}
+		}
+		String end = expected.toString();
+		int entries = journal.undoCount();
+		while(journal.undo()) {
+			// keep undoing
+		}
+		assertValid("start", journal.tree());
+		for(int i = 0; i < entries; i++) {
+			assertTrue(journal.redo());
+		}
+		assertValid(end, journal.tree());
+	}
+
+	@Test
+	public void testUndoMatchesEveryEarlierState() {
+		Random random = new Random(8);
+		EditJournal journal = new EditJournal(new EditTree());
+		ArrayList<String> states = new ArrayList<>();
+		for(int i = 0; i < 300; i++) {
+			journal.endRun();
+			states.add(journal.tree().toString());
+			int size = journal.tree().size();
+			if(size > 10 && random.nextBoolean()) {
+				int pos = random.nextInt(size - 5);
+				journal.delete(pos, 1 + random.nextInt(5));
+			}
+			else {
+				journal.add((char) ('a' + random.nextInt(26)), random.nextInt(size + 1));
+			}
+		}
+		// every edit started an entry of its own
+		for(int i = states.size() - 1; i >= 0; i--) {
+			assertTrue(journal.undo());
+			assertValid(states.get(i), journal.tree());
+		}
+		assertFalse(journal.canUndo());
+	}
+
+	@Test
+	public void testBudgetDropsOldestEntries() {
+		EditJournal journal = new EditJournal(new EditTree(), 10 * EditJournal.ENTRY_BYTES);
+		for(int i = 0; i < 100; i++) {
+			journal.endRun();
+			journal.add('a', i);
+		}
+		assertTrue(journal.bytes() <= 10 * EditJournal.ENTRY_BYTES);
+		assertEquals(9, journal.undoCount());
+		while(journal.undo()) {
+			// keep undoing
+		}
+		// an entry is ENTRY_BYTES plus 2 bytes per character, so 9 of them fit
+		assertEquals(91, journal.tree().size());
+	}
+
+	@Test
+	public void testUndoOfLongTypingRunIsFast() {
+		EditJournal journal = new EditJournal(new EditTree());
+		for(int i = 0; i < 500000; i++) {
+			if(i % 100000 == 0) {
+				journal.endRun();
+			}
+			journal.add((char) ('a' + i % 26), i);
+		}
+		assertEquals(5, journal.undoCount());
+		for(int i = 0; i < 5; i++) {
+			assertTrue(journal.undo());
+		}
+		assertValid("", journal.tree());
+		for(int i = 0; i < 5; i++) {
+			assertTrue(journal.redo());
+		}
+		assertEquals(500000, journal.tree().size());
+		assertEquals('a', journal.tree().get(260000));
+	}
+
+}
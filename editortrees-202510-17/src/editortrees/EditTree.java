@@ -1,5 +1,27 @@
 package editortrees;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
 import editortrees.Node.Code;
 
 /**
@@ -14,11 +36,80 @@ import editortrees.Node.Code;
  * 
  * 
  */
-public class EditTree {
+public class EditTree implements CharSequence {
+
+	// characters (and bytes) moved at a time by writeTo()
+	static final int WRITE_BUFFER = 8192;
+	// characters (and bytes) read at a time by the Reader and channel constructors
+	static final int READ_BUFFER = 65536;
+	// bytes per segment decoded in parallel by open()
+	static final long SEGMENT_BYTES = 1 << 22;
+	// most characters findAll() scans in one task
+	static final int SEARCH_CHUNK = 1 << 16;
+
+	/**
+	 * A summary (see Summary) of which characters occur in a piece of text,
+	 * hashed to the 64 bits of a long by Node.charBit(). A tree made with it,
+	 * see EditTree(String, List), lets indexOf(), lastIndexOf() and findAll()
+	 * skip the subtrees that can't hold the needle's first (or last)
+	 * character. Other trees don't spend a long per node on it, and are
+	 * searched through every character.
+	 */
+	public static final Summary<Long> CHARACTER_SETS = new Summary<Long>() {
+		@Override
+		public Long identity() {
+			return 0L;
+		}
+
+		@Override
+		public Long of(char ch) {
+			return Node.charBit(ch);
+		}
+
+		@Override
+		public Long combine(Long left, Long right) {
+			return left | right;
+		}
+	};
+
+	/**
+	 * A summary (see Summary) of the polynomial hash of a piece of text (see
+	 * hashOf()). A tree made with it, see EditTree(String, List), hashes
+	 * any range in O(log n) time with hash(), and regionMatches() compares
+	 * two such trees that way. Other trees don't spend two longs per node on
+	 * it, and read the characters of the ranges instead.
+	 */
+	public static final Summary<?> HASHES = RollingHash.SUMMARY;
+
+	/**
+	 * Hashes s the way hash() hashes a range of a tree: the hash of
+	 * c[0] ... c[k-1] is the sum of (c[i] + 1) * B^(k-1-i) modulo 2^61 - 1, for
+	 * a fixed B, so hashes can be stored and compared with ones taken later.
+	 * 
+	 * @return the hash of s, in O(s.length()) time
+	 */
+	public static long hashOf(CharSequence s) {
+		return RollingHash.of(s);
+	}
 
 	Node root;
 	private int size;
 	int rotCount;
+	// reused by every add and delete so they don't allocate one per call
+	private final BContainer isBalanced = new BContainer(false, 0);
+	private final PathStack path = new PathStack();
+	private final SplitContainer pieces = new SplitContainer();
+	private boolean readOnly; // true for snapshots
+	// whether some of the nodes may also be reachable from a snapshot: set by
+	// snapshot(), and carried along with the nodes by split(), delete() and
+	// concat(), which then knows if it has to give this tree a new owner
+	private boolean shared;
+	int modCount; // counts changes, so cached paths can tell they are stale
+	// where the last get() was, so reads near it don't start over at the root
+	private final Finger finger = new Finger();
+	private int fingerModCount = -1;
+	// how much toString() may cache, see setToStringCacheLimit()
+	private final CacheBudget cacheBudget = new CacheBudget();
 	
 	DisplayableBinaryTree db;
 
@@ -37,7 +128,7 @@ public class EditTree {
 	 * @param ch
 	 */
 	public EditTree(char ch) {
-		root = new Node(ch);
+		root = isBalanced.newNode(ch);
 		//size = slowSize();
 		size = 1; 	// since its a new tree, size is 0
 	}
@@ -50,16 +141,19 @@ public class EditTree {
 	 * @param e
 	 */
 	public EditTree(EditTree e) {
+		isBalanced.counted = e.isBalanced.counted;
+		isBalanced.summaries = e.isBalanced.summaries;
 		root = e.root;
 		root = TreeMaker(root);
 		size = e.size;
+		rotCount = e.rotCount;
 	}
 
 	private Node TreeMaker(Node curr) {
 		if(curr == Node.NULL_NODE) {
 			return Node.NULL_NODE;
 		}
-		Node first = new Node(curr.data, TreeMaker(curr.left), TreeMaker(curr.right),
+		Node first = isBalanced.newNode(curr.data, TreeMaker(curr.left), TreeMaker(curr.right),
 							  curr.rank, curr.balance);
 		//first.left = TreeMaker(curr.left);
 		//first.right = TreeMaker(curr.right);
@@ -78,33 +172,312 @@ public class EditTree {
 		size = s.length();
 	}
 
-	private Node TreeMakerWString(String s, int beg, int end) {
+	/**
+	 * Construct an empty tree that counts lines, code points and UTF-8 bytes
+	 * if counted is set, like EditTree(String, boolean).
+	 */
+	public EditTree(boolean counted) {
+		this();
+		isBalanced.counted = counted;
+	}
+
+	/**
+	 * Like EditTree(String), but if counted is set, every node counts the
+	 * lines, code points and UTF-8 bytes in its subtree (see CountedNode),
+	 * which the line, code point and UTF-8 methods need. That makes each node
+	 * larger and each add and delete slower, so plain trees don't. Trees split
+	 * or deleted from this one are counted too, and only a counted tree can be
+	 * appended to it.
+	 * 
+	 * @param s
+	 * @param counted whether to count lines, code points and UTF-8 bytes
+	 */
+	public EditTree(String s, boolean counted) {
+		isBalanced.counted = counted;
+		root = TreeMakerWString(s, 0, s.length()-1);
+		size = s.length();
+	}
+
+	/**
+	 * Like EditTree(String), but the tree keeps the given summaries for every
+	 * subtree, which prefixSummary() and seekBy() then answer from in
+	 * O(log n). Trees split or deleted from this one keep them too, and only
+	 * a tree with the same summaries can be appended to it. The tree is
+	 * counted, like EditTree(s, true) is, as well.
+	 * 
+	 * @param s
+	 * @param summaries statistics to keep, see Summary
+	 */
+	public EditTree(String s, List<? extends Summary<?>> summaries) {
+		this(summaries);
+		root = TreeMakerWString(s, 0, s.length()-1);
+		size = s.length();
+	}
+
+	// an empty tree that keeps summaries, like EditTree(String, List)
+	private EditTree(List<? extends Summary<?>> summaries) {
+		this(true);
+		if(!summaries.isEmpty()) {
+			isBalanced.summaries = summaries.toArray(new Summary<?>[summaries.size()]);
+		}
+	}
+
+	Node TreeMakerWString(CharSequence s, int beg, int end) {
 		if(beg > end) {
 			return Node.NULL_NODE;
 		}
 		int middle = (beg+end)/2;
+		// the right half is never smaller than the left half, so it is the taller
+		// one whenever their heights differ
 		Node.Code balance;
-		int diff = (end-middle)-(middle-beg);  // negetive is left, positive is right and 0 is balanced
-		
-		// problems are with balance codes of parents of leafs, specifically one with one parent
-		if(diff == 0) {
+		if(builtHeight(middle-beg) == builtHeight(end-middle)) {
 			balance = Node.Code.SAME;
 		}
-		else if(diff == 2) {
-			balance = Node.Code.RIGHT;
-		}
-		else if(middle-beg==1||end-middle==1){  // case to deal with that(above statement)
-			balance = Node.Code.RIGHT;
-		}
 		else {
-			balance = Node.Code.SAME;
+			balance = Node.Code.RIGHT;
 		}
-		Node curr = new Node(s.charAt(middle), 		//root data
+		return isBalanced.newNode(s.charAt(middle), 		//root data
 							TreeMakerWString(s, beg, middle-1), // left subtree
 							TreeMakerWString(s, middle+1, end), // right subtree
 							(middle-beg), // rank
 							balance);
-		return curr;
+	}
+
+	/**
+	 * Create an EditTree holding everything reader has left, in O(N) time,
+	 * without ever holding all of it in a String: it is read READ_BUFFER
+	 * characters at a time, and each buffer is built into a balanced tree like
+	 * EditTree(String) does and joined onto the right spine of the tree so
+	 * far, in O(log N). The reader isn't closed.
+	 * 
+	 * @param reader
+	 * @throws IOException if the reader throws one
+	 */
+	public EditTree(Reader reader) throws IOException {
+		this();
+		read(reader);
+	}
+
+	/**
+	 * Like EditTree(Reader), but the tree counts lines, code points and UTF-8
+	 * bytes if counted is set, like EditTree(String, boolean).
+	 * 
+	 * @throws IOException if the reader throws one
+	 */
+	public EditTree(Reader reader, boolean counted) throws IOException {
+		this(counted);
+		read(reader);
+	}
+
+	/**
+	 * Like EditTree(Reader), but the tree keeps summaries, like
+	 * EditTree(String, List).
+	 * 
+	 * @throws IOException if the reader throws one
+	 */
+	public EditTree(Reader reader, List<? extends Summary<?>> summaries) throws IOException {
+		this(summaries);
+		read(reader);
+	}
+
+	// appends everything reader has left, for the Reader constructors
+	private void read(Reader reader) throws IOException {
+		char[] buffer = new char[READ_BUFFER];
+		CharBuffer chars = CharBuffer.wrap(buffer);
+		while(true) {
+			int count = 0;
+			int read;
+			while(count < buffer.length && (read = reader.read(buffer, count, buffer.length - count)) >= 0) {
+				count += read;
+			}
+			if(count == 0) {
+				break;
+			}
+			append(chars, count);
+		}
+	}
+
+	/**
+	 * Create an EditTree holding everything channel has left, decoded with
+	 * charset, like EditTree(Reader): in O(N) time and with one buffer of bytes
+	 * and one of characters besides the tree. Bytes that can't be decoded are
+	 * replaced, as new String(byte[], Charset) does. The channel isn't closed.
+	 * 
+	 * @throws IOException if the channel throws one
+	 */
+	public EditTree(ReadableByteChannel channel, Charset charset) throws IOException {
+		this();
+		read(channel, charset);
+	}
+
+	/**
+	 * Like EditTree(ReadableByteChannel, Charset), but the tree counts lines,
+	 * code points and UTF-8 bytes if counted is set, like
+	 * EditTree(String, boolean).
+	 * 
+	 * @throws IOException if the channel throws one
+	 */
+	public EditTree(ReadableByteChannel channel, Charset charset, boolean counted) throws IOException {
+		this(counted);
+		read(channel, charset);
+	}
+
+	/**
+	 * Like EditTree(ReadableByteChannel, Charset), but the tree keeps
+	 * summaries, like EditTree(String, List).
+	 * 
+	 * @throws IOException if the channel throws one
+	 */
+	public EditTree(ReadableByteChannel channel, Charset charset, List<? extends Summary<?>> summaries)
+			throws IOException {
+		this(summaries);
+		read(channel, charset);
+	}
+
+	// appends everything channel has left, for the channel constructors and
+	// for files open() can't cut into segments
+	private void read(ReadableByteChannel channel, Charset charset) throws IOException {
+		CharsetDecoder decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		ByteBuffer in = ByteBuffer.allocate(READ_BUFFER);
+		CharBuffer out = CharBuffer.allocate(READ_BUFFER);
+		boolean endOfInput = false;
+		while(!endOfInput) {
+			endOfInput = channel.read(in) < 0;
+			in.flip();
+			CoderResult result;
+			while((result = decoder.decode(in, out, endOfInput)).isOverflow()) {
+				appendDecoded(out);
+			}
+			if(result.isError()) {
+				result.throwException();
+			}
+			in.compact(); // keeps the start of a character split by the buffer
+		}
+		while(decoder.flush(out).isOverflow()) {
+			appendDecoded(out);
+		}
+		appendDecoded(out);
+	}
+
+	/**
+	 * Loads the file at path, decoded with charset, into a new tree. The file
+	 * is cut into segments of about SEGMENT_BYTES bytes that start on
+	 * character boundaries, and each segment is memory-mapped, decoded and
+	 * built into a balanced tree in parallel on the common ForkJoinPool; the
+	 * trees are then joined pairwise, in O(log n) each. Segments can only be
+	 * found this way for UTF-8 and for charsets with one byte per character;
+	 * files in other charsets are read in one stream, like
+	 * EditTree(ReadableByteChannel, Charset) does. Bytes that can't be decoded
+	 * are replaced.
+	 * 
+	 * @throws IOException if the file can't be read
+	 */
+	public static EditTree open(Path path, Charset charset) throws IOException {
+		return load(path, charset, new EditTree());
+	}
+
+	/**
+	 * Like open(Path, Charset), but the tree counts lines, code points and
+	 * UTF-8 bytes if counted is set, like EditTree(String, boolean).
+	 * 
+	 * @throws IOException if the file can't be read
+	 */
+	public static EditTree open(Path path, Charset charset, boolean counted) throws IOException {
+		return load(path, charset, new EditTree(counted));
+	}
+
+	/**
+	 * Like open(Path, Charset), but the tree keeps summaries, like
+	 * EditTree(String, List).
+	 * 
+	 * @throws IOException if the file can't be read
+	 */
+	public static EditTree open(Path path, Charset charset, List<? extends Summary<?>> summaries)
+			throws IOException {
+		return load(path, charset, new EditTree(summaries));
+	}
+
+	// loads the file into tree, which is empty and makes the kind of nodes
+	// the caller asked for, so the segments are built of them too
+	private static EditTree load(Path path, Charset charset, EditTree tree) throws IOException {
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long[] bounds = segmentBounds(channel, charset);
+			if(bounds == null) {
+				tree.read(channel, charset);
+				return tree;
+			}
+			if(channel.size() == 0) {
+				return tree;
+			}
+			SegmentLoader loader = new SegmentLoader(tree, channel, charset, bounds, 0, bounds.length-1);
+			try {
+				ForkJoinPool.commonPool().invoke(loader);
+			} catch(UncheckedIOException e) {
+				throw e.getCause();
+			}
+			tree.root = loader.root;
+			tree.size = loader.size;
+			return tree;
+		}
+	}
+
+	// where open() cuts the file, or null if the charset doesn't allow it
+	private static long[] segmentBounds(FileChannel channel, Charset charset) throws IOException {
+		boolean utf8 = charset.equals(StandardCharsets.UTF_8);
+		if(!utf8 && !(charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1)) {
+			return null;
+		}
+		long length = channel.size();
+		int count = (int) Math.max(1, (length + SEGMENT_BYTES - 1) / SEGMENT_BYTES);
+		long[] bounds = new long[count+1];
+		ByteBuffer peek = ByteBuffer.allocate(3);
+		for(int i = 1; i < count; i++) {
+			long at = i * SEGMENT_BYTES;
+			if(utf8) {
+				// step over the (at most 3) continuation bytes of a character
+				// that started in the previous segment
+				peek.clear();
+				channel.read(peek, at);
+				int k = 0;
+				while(k < peek.position() && (peek.get(k) & 0xC0) == 0x80) {
+					k++;
+				}
+				at += k;
+			}
+			bounds[i] = at;
+		}
+		bounds[count] = length;
+		return bounds;
+	}
+
+	// the owner stamped on nodes built for this tree
+	Object owner() {
+		return isBalanced.owner;
+	}
+
+	private void appendDecoded(CharBuffer out) {
+		out.flip();
+		if(out.hasRemaining()) {
+			append(out, out.remaining());
+		}
+		out.clear();
+	}
+
+	// appends the first count characters of s, count > 0, while loading: the
+	// first one is the node joining this tree to a balanced tree of the rest
+	private void append(CharSequence s, int count) {
+		isBalanced.reset();
+		Node middle = isBalanced.newNode(s.charAt(0));
+		Node right = TreeMakerWString(s, 1, count-1);
+		root = Node.join(root, Node.height(root), size, middle, right, builtHeight(count-1), isBalanced);
+		size += count;
+	}
+
+	// height of a tree with count nodes made by TreeMakerWString:
+	// floor(log2(count))
+	static int builtHeight(int count) {
+		return 31 - Integer.numberOfLeadingZeros(count);
 	}
 
 	/**
@@ -112,11 +485,60 @@ public class EditTree {
 	 */
 	@Override
 	public String toString() {
+		if(cacheBudget.limit > 0) {
+			return cachedToString();
+		}
 		StringBuilder result = new StringBuilder(); // make a stringbuiler to only make changes to result
 		root.InOrderToString(result); // replace with a real calculation.
 		return result.toString();
 	}
 
+	// the whole string is cached at the root, and pieces of it further down, so
+	// after an edit only the piece that changed is rebuilt from nodes
+	private String cachedToString() {
+		if(root == Node.NULL_NODE) {
+			return "";
+		}
+		String cached = root.text;
+		if(cached != null) {
+			return cached;
+		}
+		StringBuilder result = new StringBuilder(size);
+		cacheBudget.used = 0;
+		root.appendCached(result, size, cacheBudget);
+		String s = result.toString();
+		if(!readOnly && cacheBudget.used + size <= cacheBudget.limit) {
+			root.text = s;
+		}
+		return s;
+	}
+
+	/**
+	 * Lets toString() cache up to limit characters in the nodes, which it
+	 * doesn't by default. Then calling toString() again before the tree
+	 * changes takes O(1) time, and after an edit only the chunk of at most
+	 * Node.CACHED_CHUNK characters around it, and the O(log n) nodes above,
+	 * are read from the tree again; the other chunks are copied whole. With a
+	 * limit of twice the size of the tree, or more, everything is cached;
+	 * with less, the chunks that don't fit are built from the nodes each time.
+	 * Lowering the limit drops all cached text, in O(n) time.
+	 * 
+	 * A snapshot shares its nodes with the tree, so its toString() only reads
+	 * the texts the tree has cached, and never caches or drops any itself:
+	 * calling it on another thread doesn't write to nodes the tree is using.
+	 * 
+	 * @param limit number of characters, 0 to turn caching off
+	 */
+	public void setToStringCacheLimit(long limit) {
+		if(limit < 0) {
+			throw new IllegalArgumentException("limit must not be negative");
+		}
+		if(limit < cacheBudget.limit && !readOnly) {
+			root.clearCached();
+		}
+		cacheBudget.limit = limit;
+	}
+
 	/**
 	 * MILESTONE 1 Just modify the value of this.size whenever adding or removing a
 	 * node. This is O(1).
@@ -161,16 +583,121 @@ public class EditTree {
 	 *                                   tree.
 	 */
 	public void add(char ch, int pos) throws IndexOutOfBoundsException {
+		checkWritable();
 		// You can use your O(1) size field/method to determine if the index is valid.
 		if(!(pos >= 0 && pos <= size)) {  // excludes index outside of size or negetive
 			throw new IndexOutOfBoundsException();
 		}
-		BContainer isBalanced = new BContainer(false, 0);
-		root = root.add(ch, pos, isBalanced);
+		modCount++;
+		isBalanced.reset();
+		root = Node.add(root, ch, pos, path, isBalanced);
 		rotCount += isBalanced.rotCount;
 		size++;
 	}
 
+	/**
+	 * Adds all of s, in order, starting at in-order position pos. Instead of
+	 * adding one character at a time, this builds a balanced tree out of s in
+	 * O(k) time, the same way as EditTree(String), and splices it in with two
+	 * AVL joins in O(log n) time, where k is the length of s.
+	 * 
+	 * @param s   characters to add
+	 * @param pos position of the first added character. Valid positions range
+	 *            from 0 to the size of the tree, inclusive.
+	 * @throws IndexOutOfBoundsException if pos is negative or too large for this
+	 *                                   tree.
+	 */
+	public void add(CharSequence s, int pos) throws IndexOutOfBoundsException {
+		checkWritable();
+		if(pos < 0 || pos > size) {
+			throw new IndexOutOfBoundsException();
+		}
+		int length = s.length();
+		if(length == 0) {
+			return;
+		}
+		modCount++;
+		isBalanced.reset();
+		Node middle = TreeMakerWString(s, 0, length-1);
+		Node.split(root, Node.height(root), size, pos, pieces, isBalanced);
+		Node right = pieces.right;
+		int rightHeight = pieces.rightHeight;
+		Node left = Node.concat(pieces.left, pieces.leftHeight, pos, middle, builtHeight(length), length, pieces,
+				isBalanced);
+		root = Node.concat(left, isBalanced.height, pos + length, right, rightHeight, size - pos, pieces,
+				isBalanced);
+		size += length;
+		rotCount += isBalanced.rotCount;
+	}
+
+	/**
+	 * Writes the characters of this tree to out in order, WRITE_BUFFER
+	 * characters at a time, so saving a document needs O(1) extra memory
+	 * instead of a String as large as the whole document.
+	 * 
+	 * @param out where to write, a Writer or any other Appendable
+	 * @throws IOException if out throws one
+	 */
+	public void writeTo(Appendable out) throws IOException {
+		char[] buffer = new char[WRITE_BUFFER];
+		CharBuffer wrapped = CharBuffer.wrap(buffer);
+		EditTreeCursor c = cursor(0);
+		int count;
+		while((count = c.read(buffer, 0, buffer.length)) > 0) {
+			if(out instanceof Writer) { // skips the String Writer.append() makes
+				((Writer) out).write(buffer, 0, count);
+			}
+			else {
+				out.append(wrapped, 0, count);
+			}
+		}
+	}
+
+	/**
+	 * Encodes the characters of this tree with charset and writes them to
+	 * channel, one buffer of WRITE_BUFFER characters at a time, so saving a
+	 * document needs O(1) extra memory. Characters that can't be encoded are
+	 * replaced, as String.getBytes(Charset) does. The channel isn't closed.
+	 * 
+	 * @throws IOException if the channel throws one
+	 */
+	public void writeTo(WritableByteChannel channel, Charset charset) throws IOException {
+		CharsetEncoder encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		char[] chars = new char[WRITE_BUFFER];
+		CharBuffer in = CharBuffer.wrap(chars);
+		ByteBuffer out = ByteBuffer.allocate(WRITE_BUFFER);
+		EditTreeCursor c = cursor(0);
+		int kept = 0; // the high half of a surrogate pair split by the last buffer
+		boolean endOfInput = false;
+		while(!endOfInput) {
+			int count = c.read(chars, kept, chars.length - kept);
+			endOfInput = !c.hasNext();
+			in.limit(kept + Math.max(count, 0)).position(0);
+			CoderResult result;
+			while((result = encoder.encode(in, out, endOfInput)).isOverflow()) {
+				drain(out, channel);
+			}
+			if(result.isError()) {
+				result.throwException();
+			}
+			kept = in.remaining();
+			System.arraycopy(chars, in.position(), chars, 0, kept);
+		}
+		while(encoder.flush(out).isOverflow()) {
+			drain(out, channel);
+		}
+		drain(out, channel);
+	}
+
+	private static void drain(ByteBuffer out, WritableByteChannel channel) throws IOException {
+		out.flip();
+		while(out.hasRemaining()) {
+			channel.write(out);
+		}
+		out.clear();
+	}
+
 	/**
 	 * MILESTONE 1 This one asks for more info from each node. You can write it
 	 * similar to the arraylist-based toString() method from the BinarySearchTree
@@ -199,7 +726,11 @@ public class EditTree {
 	}
 
 	/**
-	 * MILESTONE 1
+	 * MILESTONE 1 Reads are served from a Finger left at the previous read, so
+	 * a read d characters away from it typically takes O(log d) time instead of
+	 * O(log n). Only reads in a row gain from this: the first read after an
+	 * edit starts over at the root, and add() and delete() always descend from
+	 * the root themselves.
 	 * 
 	 * @param pos position in the tree
 	 * @return the character at that position
@@ -213,7 +744,539 @@ public class EditTree {
 		if(pos < 0 || pos >= size) {  
 			throw new IndexOutOfBoundsException();
 		}
-		return root.get(pos);
+		// edits change ranks and rotate nodes, so start over at the root after one
+		if(fingerModCount != modCount) {
+			finger.reset(root, size);
+			fingerModCount = modCount;
+		}
+		return finger.seek(pos).data;
+	}
+
+	/**
+	 * The same as get(index), so reading the characters in order takes O(1)
+	 * amortized time each. Since reads move the finger, two threads shouldn't
+	 * read one tree at the same time; give each one a snapshot() instead.
+	 * 
+	 * @throws IndexOutOfBoundsException if index is negative or not less than
+	 *                                   length()
+	 */
+	@Override
+	public char charAt(int index) {
+		return get(index);
+	}
+
+	/**
+	 * @return size()
+	 */
+	@Override
+	public int length() {
+		return size;
+	}
+
+	/**
+	 * Returns the characters from start to end (exclusive) in O(1) time,
+	 * without copying them. The result is a view of this tree, and like a
+	 * cursor it is fail-fast: once this tree is changed, reading it throws
+	 * ConcurrentModificationException. For a view that keeps its contents,
+	 * take it from a snapshot(), which is never changed.
+	 * 
+	 * @throws IndexOutOfBoundsException unless 0 <= start <= end <= length()
+	 */
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if(start < 0 || end > size || start > end) {
+			throw new IndexOutOfBoundsException();
+		}
+		return new EditTreeSlice(this, start, end - start);
+	}
+
+	/**
+	 * Returns a cursor in front of the character at pos, in O(log n) time, to
+	 * walk through the characters from there in either direction in O(1)
+	 * amortized time each. See EditTreeCursor.
+	 * 
+	 * @param pos number of characters before the cursor, from 0 to size()
+	 * @throws IndexOutOfBoundsException if pos is negative or larger than
+	 *                                   size()
+	 */
+	public EditTreeCursor cursor(int pos) throws IndexOutOfBoundsException {
+		if(pos < 0 || pos > size) {
+			throw new IndexOutOfBoundsException();
+		}
+		return new EditTreeCursor(this, pos);
+	}
+
+	/**
+	 * Lines are separated by '\n', so there is always one more line than
+	 * there are newlines: an empty tree has one empty line, and so does the
+	 * end of a tree that ends with a newline. Every node of a counted tree
+	 * (see EditTree(String, boolean)) counts the newlines in its subtree, so
+	 * this is O(1). Like the other line, code point and UTF-8 methods, it
+	 * throws UnsupportedOperationException on a tree that isn't counted.
+	 * 
+	 * @return the number of lines in this tree
+	 */
+	public int lineCount() {
+		checkCounted();
+		return CountedNode.newlinesIn(root) + 1;
+	}
+
+	/**
+	 * @param offset position in the tree, from 0 to size() inclusive
+	 * @return the line, counting from 0, that the character at offset is on,
+	 *         in O(log n). A newline is on the line it ends.
+	 * @throws IndexOutOfBoundsException if offset is negative or larger than
+	 *                                   size()
+	 */
+	public int lineOfOffset(int offset) throws IndexOutOfBoundsException {
+		checkCounted();
+		if(offset < 0 || offset > size) {
+			throw new IndexOutOfBoundsException();
+		}
+		return CountedNode.newlinesBefore(root, offset);
+	}
+
+	/**
+	 * @param line line number, counting from 0
+	 * @return the position of the first character of line, in O(log n)
+	 * @throws IndexOutOfBoundsException unless 0 <= line < lineCount()
+	 */
+	public int offsetOfLine(int line) throws IndexOutOfBoundsException {
+		if(line < 0 || line >= lineCount()) {
+			throw new IndexOutOfBoundsException();
+		}
+		if(line == 0) {
+			return 0;
+		}
+		return CountedNode.positionOfNewline(root, line) + 1;
+	}
+
+	/**
+	 * @param line line number, counting from 0
+	 * @return the characters of line, without the newline that ends it, in
+	 *         O(log n + length of the line)
+	 * @throws IndexOutOfBoundsException unless 0 <= line < lineCount()
+	 */
+	public String getLine(int line) throws IndexOutOfBoundsException {
+		int start = offsetOfLine(line);
+		int end = line + 1 < lineCount() ? offsetOfLine(line + 1) - 1 : size;
+		if(start == end) {
+			return "";
+		}
+		return get(start, end - start);
+	}
+
+	/**
+	 * Positions in an EditTree count UTF-16 chars, so a character outside the
+	 * Basic Multilingual Plane takes up two positions, a surrogate pair. Every
+	 * node of a counted tree also counts the code points in its subtree, and
+	 * marks whether the subtree starts with a low surrogate or ends with a
+	 * high one, so the methods below can count in code points in O(log n).
+	 * An unpaired surrogate counts as a code point of its own, like in
+	 * String.
+	 * 
+	 * @return the number of code points in this tree, in O(1)
+	 */
+	public int codePointCount() {
+		checkCounted();
+		return CountedNode.codePointsIn(root);
+	}
+
+	/**
+	 * Like String.codePointAt(int): the code point at index, combining a
+	 * surrogate pair that starts there. O(log n).
+	 * 
+	 * @param index char position in the tree
+	 * @throws IndexOutOfBoundsException if index is negative or not less than
+	 *                                   size()
+	 */
+	public int codePointAt(int index) throws IndexOutOfBoundsException {
+		char ch = get(index);
+		if(Character.isHighSurrogate(ch) && index + 1 < size) {
+			char next = get(index + 1);
+			if(Character.isLowSurrogate(next)) {
+				return Character.toCodePoint(ch, next);
+			}
+		}
+		return ch;
+	}
+
+	/**
+	 * @param codePointIndex number of code points before the one wanted, from
+	 *                       0 to codePointCount() inclusive
+	 * @return the char position where that code point starts (size() for
+	 *         codePointCount()), in O(log n)
+	 * @throws IndexOutOfBoundsException if codePointIndex is negative or
+	 *                                   larger than codePointCount()
+	 */
+	public int codePointOffset(int codePointIndex) throws IndexOutOfBoundsException {
+		int count = codePointCount();
+		if(codePointIndex < 0 || codePointIndex > count) {
+			throw new IndexOutOfBoundsException();
+		}
+		if(codePointIndex == count) {
+			return size;
+		}
+		return CountedNode.positionOfCodePoint(root, codePointIndex);
+	}
+
+	/**
+	 * The inverse of codePointOffset(): the number of code points that start
+	 * before offset, in O(log n). An offset between the halves of a pair
+	 * counts the pair.
+	 * 
+	 * @param offset char position, from 0 to size() inclusive
+	 * @throws IndexOutOfBoundsException if offset is negative or larger than
+	 *                                   size()
+	 */
+	public int codePointIndexOf(int offset) throws IndexOutOfBoundsException {
+		checkCounted();
+		if(offset < 0 || offset > size) {
+			throw new IndexOutOfBoundsException();
+		}
+		return CountedNode.codePointsBefore(root, offset);
+	}
+
+	/**
+	 * Adds codePoint, one char or a surrogate pair, so that codePointIndex
+	 * code points come before it. O(log n).
+	 * 
+	 * @throws IllegalArgumentException  if codePoint isn't a valid code point
+	 * @throws IndexOutOfBoundsException if codePointIndex is negative or
+	 *                                   larger than codePointCount()
+	 */
+	public void addCodePoint(int codePoint, int codePointIndex) throws IndexOutOfBoundsException {
+		if(!Character.isValidCodePoint(codePoint)) {
+			throw new IllegalArgumentException("not a code point: " + codePoint);
+		}
+		int pos = codePointOffset(codePointIndex);
+		if(Character.isBmpCodePoint(codePoint)) {
+			add((char) codePoint, pos);
+		}
+		else {
+			add(Character.highSurrogate(codePoint), pos);
+			add(Character.lowSurrogate(codePoint), pos + 1);
+		}
+	}
+
+	/**
+	 * Like add(CharSequence, int), but s is added so that codePointIndex code
+	 * points come before it, which never puts it inside a surrogate pair.
+	 * 
+	 * @throws IndexOutOfBoundsException if codePointIndex is negative or
+	 *                                   larger than codePointCount()
+	 */
+	public void addAtCodePoint(CharSequence s, int codePointIndex) throws IndexOutOfBoundsException {
+		add(s, codePointOffset(codePointIndex));
+	}
+
+	/**
+	 * Deletes the code point after codePointIndex others, both halves of it
+	 * if it is a surrogate pair. O(log n).
+	 * 
+	 * @return the code point that is deleted
+	 * @throws IndexOutOfBoundsException if codePointIndex is negative or not
+	 *                                   less than codePointCount()
+	 */
+	public int deleteCodePoint(int codePointIndex) throws IndexOutOfBoundsException {
+		if(codePointIndex < 0 || codePointIndex >= codePointCount()) {
+			throw new IndexOutOfBoundsException();
+		}
+		int pos = codePointOffset(codePointIndex);
+		int length = codePointOffset(codePointIndex + 1) - pos;
+		char ch = delete(pos);
+		if(length == 2) {
+			return Character.toCodePoint(ch, delete(pos));
+		}
+		return ch;
+	}
+
+	/**
+	 * Like delete(int, int), but deletes count code points after
+	 * codePointIndex others, so no surrogate pair is ever split. O(log n).
+	 * 
+	 * @return a new tree holding the deleted code points
+	 * @throws IndexOutOfBoundsException unless the code points lie inside
+	 *                                   this tree
+	 */
+	public EditTree deleteCodePoints(int codePointIndex, int count) throws IndexOutOfBoundsException {
+		if(codePointIndex < 0 || count < 0 || count > codePointCount() - codePointIndex) {
+			throw new IndexOutOfBoundsException();
+		}
+		int start = codePointOffset(codePointIndex);
+		return delete(start, codePointOffset(codePointIndex + count) - start);
+	}
+
+	/**
+	 * @return the number of bytes this tree takes in UTF-8, the length of
+	 *         toString().getBytes(StandardCharsets.UTF_8), in O(1)
+	 */
+	public long utf8Length() {
+		checkCounted();
+		return CountedNode.utf8BytesIn(root);
+	}
+
+	/**
+	 * Converts a char position to a UTF-8 byte offset, in O(log n): the
+	 * number of bytes before the code point that starts at charPos. A position
+	 * between the halves of a surrogate pair maps past the pair, like in
+	 * codePointIndexOf().
+	 * 
+	 * @param charPos from 0 to size() inclusive
+	 * @throws IndexOutOfBoundsException if charPos is negative or larger than
+	 *                                   size()
+	 */
+	public long byteOffsetOf(int charPos) throws IndexOutOfBoundsException {
+		checkCounted();
+		if(charPos < 0 || charPos > size) {
+			throw new IndexOutOfBoundsException();
+		}
+		long offset = CountedNode.utf8BytesBefore(root, charPos);
+		if(charPos > 0 && charPos < size && Character.isHighSurrogate(get(charPos - 1))
+				&& Character.isLowSurrogate(get(charPos))) {
+			offset += 3; // the whole pair instead of a lone high surrogate
+		}
+		return offset;
+	}
+
+	/**
+	 * Converts a UTF-8 byte offset to a char position, in O(log n): the
+	 * position of the character whose encoding holds that byte, or size() for
+	 * utf8Length(). An offset inside a multi-byte character maps to its start,
+	 * so charPosOfByteOffset(byteOffsetOf(pos)) == pos for every pos that
+	 * doesn't split a surrogate pair.
+	 * 
+	 * @param byteOffset from 0 to utf8Length() inclusive
+	 * @throws IndexOutOfBoundsException if byteOffset is negative or larger
+	 *                                   than utf8Length()
+	 */
+	public int charPosOfByteOffset(long byteOffset) throws IndexOutOfBoundsException {
+		long length = utf8Length();
+		if(byteOffset < 0 || byteOffset > length) {
+			throw new IndexOutOfBoundsException();
+		}
+		if(byteOffset == length) {
+			return size;
+		}
+		return CountedNode.positionOfUtf8Byte(root, byteOffset);
+	}
+
+	/**
+	 * @return the value of summary, one of the summaries this tree was made
+	 *         with, for its first pos characters, in O(log n)
+	 * @throws IllegalArgumentException  if this tree doesn't keep summary
+	 * @throws IndexOutOfBoundsException if pos is negative or larger than
+	 *                                   size()
+	 */
+	public <S> S prefixSummary(Summary<S> summary, int pos) throws IndexOutOfBoundsException {
+		int i = summaryIndex(summary);
+		if(pos < 0 || pos > size) {
+			throw new IndexOutOfBoundsException();
+		}
+		return SummarizedNode.summaryBefore(root, pos, summary, i);
+	}
+
+	/**
+	 * Finds the shortest prefix whose value of summary satisfies found, in
+	 * O(log n) calls to it. found has to be monotone: once it holds for a
+	 * prefix, it must hold for every longer one, like "has at least k
+	 * newlines" does for a count of newlines.
+	 * 
+	 * @return the length of that prefix, from 0 to size(), or -1 if found
+	 *         doesn't hold even for the whole tree
+	 * @throws IllegalArgumentException if this tree doesn't keep summary
+	 */
+	public <S> int seekBy(Summary<S> summary, Predicate<? super S> found) {
+		int i = summaryIndex(summary);
+		if(found.test(summary.identity())) {
+			return 0;
+		}
+		return SummarizedNode.seekBy(root, summary, i, found);
+	}
+
+	private void checkCounted() {
+		if(!isBalanced.counted) {
+			throw new UnsupportedOperationException("this tree doesn't count lines, code points and UTF-8 bytes");
+		}
+	}
+
+	private int summaryIndex(Summary<?> summary) {
+		int i = indexOfSummary(summary);
+		if(i < 0) {
+			throw new IllegalArgumentException("this tree doesn't keep that summary");
+		}
+		return i;
+	}
+
+	// the position of summary among the ones this tree keeps, or -1
+	private int indexOfSummary(Summary<?> summary) {
+		Summary<?>[] summaries = isBalanced.summaries;
+		for(int i = 0; summaries != null && i < summaries.length; i++) {
+			if(summaries[i] == summary) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the position of CHARACTER_SETS among the summaries this tree
+	 *         keeps, or -1 if it doesn't keep them, for Node.feedForward()
+	 */
+	int characterSets() {
+		return indexOfSummary(CHARACTER_SETS);
+	}
+
+	/**
+	 * @return indexOf(needle, 0)
+	 */
+	public int indexOf(CharSequence needle) {
+		return indexOf(needle, 0);
+	}
+
+	/**
+	 * Like String.indexOf(String, int): finds the first occurrence of needle
+	 * that starts at from or later. The characters are streamed in order
+	 * through a KMP matcher (see KmpMatcher) and never copied, so this takes
+	 * O(log n + k) time, where the search stops k characters after from, and
+	 * O(|needle|) memory. In a tree that keeps CHARACTER_SETS, subtrees that
+	 * can't hold the needle's first character are skipped whole (see
+	 * Node.feedForward()), so a needle that starts with a rare character is
+	 * found in much less time than that.
+	 * 
+	 * @return the position where the occurrence starts, or -1 if there is
+	 *         none
+	 */
+	public int indexOf(CharSequence needle, int from) {
+		from = Math.max(from, 0);
+		int length = needle.length();
+		if(length == 0) {
+			return Math.min(from, size);
+		}
+		if(from > size - length) {
+			return -1;
+		}
+		KmpMatcher matcher = new KmpMatcher(needle, false);
+		int end = Node.feedForward(root, 0, from, size, matcher, characterSets(), matcher.firstBit());
+		return end < 0 ? -1 : end - length;
+	}
+
+	/**
+	 * Finds every occurrence of needle, overlapping ones included, like
+	 * calling indexOf(needle, i + 1) from each one to the next but in one
+	 * pass. The tree is divided at subtree boundaries down to SEARCH_CHUNK
+	 * characters, and those pieces are searched in parallel on the common
+	 * ForkJoinPool; matches across the seams are found by scanning |needle| - 1
+	 * characters on either side of each seam (see SearchTask). The tree must
+	 * not be changed while this runs; search a snapshot() to edit meanwhile.
+	 * 
+	 * @return the positions where the occurrences start, in order
+	 */
+	public int[] findAll(CharSequence needle) {
+		if(needle.length() == 0) {
+			int[] all = new int[size + 1];
+			for(int i = 0; i <= size; i++) {
+				all[i] = i;
+			}
+			return all;
+		}
+		SearchTask search = new SearchTask(this, new KmpMatcher(needle, false), root, 0, size);
+		if(size <= SEARCH_CHUNK) {
+			search.compute();
+		}
+		else {
+			ForkJoinPool.commonPool().invoke(search);
+		}
+		return search.matches;
+	}
+
+	/**
+	 * @return lastIndexOf(needle, size())
+	 */
+	public int lastIndexOf(CharSequence needle) {
+		return lastIndexOf(needle, size);
+	}
+
+	/**
+	 * Like String.lastIndexOf(String, int): finds the last occurrence of
+	 * needle that starts at from or earlier, streaming the characters
+	 * backwards from there like indexOf() does forwards, and skipping the
+	 * subtrees that can't hold the needle's last character if this tree keeps
+	 * CHARACTER_SETS.
+	 * 
+	 * @return the position where the occurrence starts, or -1 if there is
+	 *         none
+	 */
+	public int lastIndexOf(CharSequence needle, int from) {
+		int length = needle.length();
+		from = Math.min(from, size - length);
+		if(from < 0) {
+			return -1;
+		}
+		if(length == 0) {
+			return from;
+		}
+		KmpMatcher matcher = new KmpMatcher(needle, true);
+		return Node.feedBackward(root, 0, 0, from + length, matcher, characterSets(), matcher.firstBit());
+	}
+
+	/**
+	 * Hashes the length characters from pos on (see hashOf()) without
+	 * copying them. A tree that keeps HASHES does it in O(log n) time, from
+	 * the hashes its nodes keep of their subtrees; any other tree reads the
+	 * characters, in O(log n + length) time. Equal text always has equal
+	 * hashes, whatever tree or position it is in, and hashOf() gives the same
+	 * hash for a String.
+	 * 
+	 * @return the hash of the range
+	 * @throws IndexOutOfBoundsException unless pos..pos+length-1 lie inside this
+	 *                                   tree.
+	 */
+	public long hash(int pos, int length) throws IndexOutOfBoundsException {
+		if(pos < 0 || length < 0 || length > size - pos) {
+			throw new IndexOutOfBoundsException();
+		}
+		int i = indexOfSummary(HASHES);
+		if(i < 0) {
+			long hash = 0;
+			EditTreeCursor c = cursor(pos);
+			for(int k = 0; k < length; k++) {
+				hash = RollingHash.concat(hash, RollingHash.term(c.next()), RollingHash.BASE);
+			}
+			return hash;
+		}
+		long before = SummarizedNode.hashBefore(root, pos, i);
+		long through = SummarizedNode.hashBefore(root, pos + length, i);
+		return RollingHash.subtract(through, RollingHash.multiply(before, RollingHash.power(length)));
+	}
+
+	/**
+	 * Like String.regionMatches(int, String, int, int): whether the length
+	 * characters from pos on equal the ones from otherPos on in other, or
+	 * false if either range doesn't lie inside its tree. If both trees keep
+	 * HASHES, the ranges are compared by their hashes, in O(log n) time, so
+	 * different text matches with a probability of about length / 2^61.
+	 * Otherwise they are compared character by character, in
+	 * O(log n + length) time.
+	 */
+	public boolean regionMatches(int pos, EditTree other, int otherPos, int length) {
+		if(pos < 0 || otherPos < 0 || length > size - pos || length > other.size - otherPos) {
+			return false;
+		}
+		if(length <= 0) {
+			return true;
+		}
+		if(indexOfSummary(HASHES) >= 0 && other.indexOfSummary(HASHES) >= 0) {
+			return hash(pos, length) == other.hash(otherPos, length);
+		}
+		EditTreeCursor c = cursor(pos);
+		EditTreeCursor d = other.cursor(otherPos);
+		for(int k = 0; k < length; k++) {
+			if(c.next() != d.next()) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	// MILESTONE 1: They next two "slow" methods are useful for testing, debugging 
@@ -337,17 +1400,167 @@ public class EditTree {
 		// node to be deleted with either its in-order successor or predecessor.
 		// The tests assume assume that you will replace it with the
 		// *successor*.
+		checkWritable();
 		if(pos < 0 || pos >= size || root == Node.NULL_NODE) {  // excludes index outside of size or negetive
 			throw new IndexOutOfBoundsException();
 		}
 		
-		BContainer isBalanced = new BContainer(false, 0);
-		root = root.delete(pos, isBalanced);
+		modCount++;
+		isBalanced.reset();
+		root = Node.delete(root, pos, path, isBalanced);
 		size--;
 		rotCount += isBalanced.rotCount;
 		return isBalanced.data;
 	}
 
+	/**
+	 * Deletes length characters starting at position pos in O(log n) time, no
+	 * matter how many characters are deleted: the tree is split at both ends of
+	 * the range and the outer pieces are joined back together. The deleted
+	 * characters are not copied; their nodes are handed back as a tree.
+	 * 
+	 * @param pos    position of the first character to delete
+	 * @param length number of characters to delete
+	 * @return a new tree holding the deleted characters
+	 * @throws IndexOutOfBoundsException unless pos..pos+length-1 lie inside this
+	 *                                   tree.
+	 */
+	public EditTree delete(int pos, int length) throws IndexOutOfBoundsException {
+		checkWritable();
+		if(pos < 0 || length < 0 || length > size - pos) {
+			throw new IndexOutOfBoundsException();
+		}
+		modCount++;
+		isBalanced.reset();
+		Node.split(root, Node.height(root), size, pos, pieces, isBalanced);
+		Node left = pieces.left;
+		int leftHeight = pieces.leftHeight;
+		Node.split(pieces.right, pieces.rightHeight, size - pos, length, pieces, isBalanced);
+		EditTree removed = emptyLike();
+		removed.root = pieces.left;
+		removed.size = length;
+		// removed has its own owner, so it copies the nodes stamped with ours
+		// before changing them, and this tree can't reach them any more
+		removed.shared = shared;
+		root = Node.concat(left, leftHeight, pos, pieces.right, pieces.rightHeight, size - pos - length, pieces,
+				isBalanced);
+		size -= length;
+		rotCount += isBalanced.rotCount;
+		return removed;
+	}
+
+	/**
+	 * Splits this tree at pos in O(log n) time: this tree keeps the first pos
+	 * characters, and the rest are moved, node for node, into the returned
+	 * tree.
+	 * 
+	 * @param pos number of characters to keep
+	 * @return a new tree holding the characters from pos on
+	 * @throws IndexOutOfBoundsException if pos is negative or larger than the
+	 *                                   size of this tree.
+	 */
+	public EditTree split(int pos) throws IndexOutOfBoundsException {
+		checkWritable();
+		if(pos < 0 || pos > size) {
+			throw new IndexOutOfBoundsException();
+		}
+		modCount++;
+		isBalanced.reset();
+		Node.split(root, Node.height(root), size, pos, pieces, isBalanced);
+		EditTree suffix = emptyLike();
+		suffix.root = pieces.right;
+		suffix.size = size - pos;
+		// like delete(pos, length), this tree keeps its owner
+		suffix.shared = shared;
+		root = pieces.left;
+		size = pos;
+		rotCount += isBalanced.rotCount;
+		return suffix;
+	}
+
+	/**
+	 * Appends other to the end of this tree in O(log n) time, by joining the
+	 * two trees where their heights match. Since a node can't belong to two
+	 * trees, the nodes are moved rather than copied and other is left empty.
+	 * 
+	 * @param other tree to append; empty afterwards
+	 * @throws UnsupportedOperationException if either tree is a snapshot
+	 */
+	public void concat(EditTree other) {
+		if(other == this) {
+			throw new IllegalArgumentException("can't append a tree to itself");
+		}
+		checkWritable();
+		other.checkWritable();
+		if(isBalanced.counted != other.isBalanced.counted) {
+			throw new IllegalArgumentException("only one of the trees is counted");
+		}
+		if(!Arrays.equals(isBalanced.summaries, other.isBalanced.summaries)) {
+			throw new IllegalArgumentException("trees keep different summaries");
+		}
+		modCount++;
+		other.modCount++;
+		if(other.shared) {
+			// other may hold nodes split off this tree and stamped with our owner,
+			// which a snapshot of other shares
+			isBalanced.newOwner();
+			shared = true;
+		}
+		isBalanced.reset();
+		root = Node.concat(root, Node.height(root), size, other.root, Node.height(other.root), other.size, pieces,
+				isBalanced);
+		size += other.size;
+		rotCount += isBalanced.rotCount;
+		other.root = Node.NULL_NODE;
+		other.size = 0;
+		other.isBalanced.newOwner(); // we now have nodes stamped with its owner; free, since it is empty
+	}
+
+	/**
+	 * Returns a read-only view of this tree as it is now, in O(1) time. The
+	 * snapshot shares all of its nodes with this tree. Nodes are never changed
+	 * in place once they are shared: the next add or delete on this tree copies
+	 * just the O(log n) nodes on its path and the ones it rotates, so the
+	 * snapshot keeps its contents however this tree is edited afterwards.
+	 * 
+	 * @return a tree with the same contents that can't be changed
+	 */
+	public EditTree snapshot() {
+		EditTree snapshot = emptyLike();
+		snapshot.root = root;
+		snapshot.size = size;
+		snapshot.rotCount = rotCount;
+		snapshot.readOnly = true;
+		snapshot.cacheBudget.limit = cacheBudget.limit;
+		snapshot.cacheBudget.readOnly = true;
+		if(!readOnly) {
+			isBalanced.newOwner(); // the nodes are shared from now on
+			shared = true;
+		}
+		return snapshot;
+	}
+
+	// an empty tree made of the same class of nodes as this one, with the same
+	// summaries, for split(), delete() and snapshot() to move nodes into
+	private EditTree emptyLike() {
+		EditTree tree = new EditTree(isBalanced.counted);
+		tree.isBalanced.summaries = isBalanced.summaries;
+		return tree;
+	}
+
+	/**
+	 * @return true iff this tree is a snapshot, which can't be changed
+	 */
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	private void checkWritable() {
+		if(readOnly) {
+			throw new UnsupportedOperationException("snapshots are read-only");
+		}
+	}
+
 	/**
 	 * MILESTONE 3 This method operates in O(length), where length is the
 	 * parameter provided. The way to do this is to recurse/iterate only
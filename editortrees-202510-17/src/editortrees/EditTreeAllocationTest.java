@@ -0,0 +1,83 @@
+package editortrees;
+
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks how much the EditTree hot paths allocate, using the allocated-bytes
+ * counter that HotSpot keeps per thread. Every loop runs once to warm up before
+ * it is measured.
+ */
+public class EditTreeAllocationTest {
+
+	private static final int NUM_OPS = 200000;
+
+	private static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+				.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static EditTree makeTree() {
+		EditTree t = new EditTree();
+		Random random = new Random(5);
+		for(int i = 0; i < 10000; i++) {
+			t.add((char) ('a' + random.nextInt(26)), random.nextInt(t.size() + 1));
+		}
+		return t;
+	}
+
+	private static long allocationOfGets(EditTree t) {
+		long start = allocatedBytes();
+		int sum = 0;
+		for(int i = 0; i < NUM_OPS; i++) {
+			sum += t.get((i * 31) % t.size());
+		}
+		long bytes = allocatedBytes() - start;
+		assertTrue(sum > 0);
+		return bytes;
+	}
+
+	private static long allocationOfAddsAndDeletes(EditTree t) {
+		long start = allocatedBytes();
+		for(int i = 0; i < NUM_OPS; i++) {
+			t.add('x', (i * 31) % t.size());
+			t.delete((i * 17) % t.size());
+		}
+		return allocatedBytes() - start;
+	}
+
+	private static long allocationOfNodes() {
+		long start = allocatedBytes();
+		Node last = Node.NULL_NODE;
+		for(int i = 0; i < NUM_OPS; i++) {
+			last = new Node('x', last, Node.NULL_NODE);
+		}
+		long bytes = allocatedBytes() - start;
+		assertTrue(last.data == 'x');
+		return bytes;
+	}
+
+	@Test
+	public void testGetDoesNotAllocate() {
+		EditTree t = makeTree();
+		allocationOfGets(t);
+		// allow for a few stray bytes from the JVM itself
+		assertTrue(allocationOfGets(t) < 1024);
+	}
+
+	@Test
+	public void testAddOnlyAllocatesTheNode() {
+		EditTree t = makeTree();
+		allocationOfAddsAndDeletes(t);
+		allocationOfNodes();
+		long perNode = allocationOfNodes() / NUM_OPS;
+		long perEdit = allocationOfAddsAndDeletes(t) / NUM_OPS;
+		assertTrue("an add/delete pair allocated " + perEdit + " bytes, a node is " + perNode,
+				perEdit <= perNode);
+	}
+
+}
@@ -0,0 +1,161 @@
+package editortrees;
+
+import static editortrees.TestUtil.randomString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ConcurrentModificationException;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Test cases for using an EditTree as a CharSequence.
+ */
+public class EditTreeCharSequenceTest {
+
+	@Test
+	public void testCharAtInAnyOrder() {
+		Random random = new Random(19);
+		String s = randomString(random, 5000);
+		EditTree t = new EditTree(s);
+		assertEquals(s.length(), t.length());
+		for(int i = 0; i < s.length(); i++) {
+			assertEquals(s.charAt(i), t.charAt(i));
+		}
+		for(int i = s.length() - 1; i >= 0; i--) {
+			assertEquals(s.charAt(i), t.charAt(i));
+		}
+		for(int i = 0; i < 5000; i++) {
+			// mostly small steps either way, with jumps in between
+			int pos = random.nextInt(s.length());
+			for(int j = 0; j < 5 && pos + j < s.length(); j++) {
+				assertEquals(s.charAt(pos + j), t.charAt(pos + j));
+				assertEquals(s.charAt(pos), t.charAt(pos));
+			}
+		}
+	}
+
+	@Test
+	public void testCharAtAfterEdits() {
+		Random random = new Random(23);
+		EditTree t = new EditTree();
+		StringBuilder expected = new StringBuilder();
+		for(int i = 0; i < 3000; i++) {
+			int pos = random.nextInt(expected.length() + 1);
+			if(expected.length() > 0 && random.nextInt(3) == 0) {
+				pos = Math.min(pos, expected.length() - 1);
+				t.delete(pos);
+				expected.deleteCharAt(pos);
+			}
+			else {
+				char c = (char) ('a' + random.nextInt(26));
+				t.add(c, pos);
+				expected.insert(pos, c);
+			}
+			// read around the edit, so the cached path is always in use
+			for(int j = Math.max(0, pos - 2); j < Math.min(expected.length(), pos + 2); j++) {
+				assertEquals(expected.charAt(j), t.charAt(j));
+			}
+		}
+	}
+
+	@Test
+	public void testCharAtInvalidIndex() {
+		EditTree t = new EditTree("abc");
+		for(int index : new int[] { -1, 3 }) {
+			try {
+				t.charAt(index);
+				fail("Did not throw IndexOutOfBoundsException");
+			} catch(IndexOutOfBoundsException e) {
+				// success
+			}
+		}
+		try {
+			new EditTree().charAt(0);
+			fail("Did not throw IndexOutOfBoundsException");
+		} catch(IndexOutOfBoundsException e) {
+			// success
+		}
+	}
+
+	@Test
+	public void testSubSequenceIsAView() {
+		EditTree t = new EditTree("hello, big world");
+		CharSequence big = t.subSequence(7, 10);
+		CharSequence kept = t.snapshot().subSequence(7, 10);
+		assertEquals("big", big.toString());
+		assertEquals("b", big.subSequence(0, 1).toString());
+		CharSequence inner = big.subSequence(1, 2);
+		t.delete(5, 5);
+		t.add("!", t.size());
+		assertEquals("hello world!", t.toString());
+		try {
+			big.toString();
+			fail("Did not throw ConcurrentModificationException");
+		} catch(ConcurrentModificationException e) {
+			// success
+		}
+		try {
+			inner.charAt(0);
+			fail("Did not throw ConcurrentModificationException");
+		} catch(ConcurrentModificationException e) {
+			// success
+		}
+		// a view of a snapshot keeps its contents
+		big = kept;
+		assertEquals("big", big.toString());
+		assertEquals(3, big.length());
+		assertEquals('i', big.charAt(1));
+		assertEquals("ig", big.subSequence(1, 3).toString());
+		assertEquals("", big.subSequence(2, 2).toString());
+		try {
+			big.subSequence(2, 4);
+			fail("Did not throw IndexOutOfBoundsException");
+		} catch(IndexOutOfBoundsException e) {
+			// success
+		}
+		try {
+			t.subSequence(3, 2);
+			fail("Did not throw IndexOutOfBoundsException");
+		} catch(IndexOutOfBoundsException e) {
+			// success
+		}
+	}
+
+	@Test
+	public void testRegexOnTree() {
+		EditTree t = new EditTree("one two three");
+		t.add(" four", t.size());
+		Matcher m = Pattern.compile("t\\w+").matcher(t);
+		assertTrue(m.find());
+		assertEquals("two", m.group());
+		assertTrue(m.find());
+		assertEquals("three", m.group());
+		assertEquals(8, m.start());
+		assertTrue(Pattern.matches("one.*four", t));
+		StringBuilder copy = new StringBuilder().append(t, 4, 7);
+		assertEquals("two", copy.toString());
+	}
+
+	@Test
+	public void testSequentialReadsOfLargeDocument() {
+		String s = randomString(new Random(4), 2000000);
+		EditTree t = new EditTree(s);
+		int matches = 0;
+		Matcher m = Pattern.compile("abc").matcher(t);
+		while(m.find()) {
+			assertEquals("abc", s.substring(m.start(), m.end()));
+			matches++;
+		}
+		int expected = 0;
+		for(int i = s.indexOf("abc"); i >= 0; i = s.indexOf("abc", i + 1)) {
+			expected++;
+		}
+		assertEquals(expected, matches);
+	}
+
+}
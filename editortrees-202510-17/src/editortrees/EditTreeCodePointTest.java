@@ -0,0 +1,186 @@
+package editortrees;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test cases for counting in code points, with surrogate pairs that may be
+ * split between subtrees, and unpaired surrogates.
+ */
+public class EditTreeCodePointTest {
+
+	private static String randomText(Random random, int length) {
+		StringBuilder result = new StringBuilder(length);
+		while(result.length() < length) {
+			int kind = random.nextInt(6);
+			if(kind < 2) {
+				result.appendCodePoint(0x1F600 + random.nextInt(50));
+			}
+			else if(kind == 2) {
+				result.append((char) (0xD800 + random.nextInt(0x800))); // unpaired, mostly
+			}
+			else {
+				result.append((char) ('a' + random.nextInt(26)));
+			}
+		}
+		return result.toString();
+	}
+
+	// checks every node's counts against the string its subtree holds
+	private static String checkCounts(Node n) {
+		if(n == Node.NULL_NODE) {
+			return "";
+		}
+		String s = checkCounts(n.left) + n.data + checkCounts(n.right);
+		assertEquals(s.codePointCount(0, s.length()), ((CountedNode) n).codePoints);
+		assertEquals(Character.isLowSurrogate(s.charAt(0)), ((CountedNode) n).startsWithLow);
+		assertEquals(Character.isHighSurrogate(s.charAt(s.length() - 1)), ((CountedNode) n).endsWithHigh);
+		return s;
+	}
+
+	private static void assertCodePoints(String expected, EditTree t) {
+		assertEquals(expected, t.toString());
+		checkCounts(t.root);
+		int count = expected.codePointCount(0, expected.length());
+		assertEquals(count, t.codePointCount());
+		for(int k = 0; k <= count; k++) {
+			assertEquals(expected.offsetByCodePoints(0, k), t.codePointOffset(k));
+		}
+		for(int offset = 0; offset <= expected.length(); offset++) {
+			assertEquals(expected.codePointCount(0, offset), t.codePointIndexOf(offset));
+			if(offset < expected.length()) {
+				assertEquals(expected.codePointAt(offset), t.codePointAt(offset));
+			}
+		}
+	}
+
+	@Test
+	public void testSmallTrees() {
+		assertCodePoints("", new EditTree(true));
+		assertCodePoints("\uD83D\uDE00", new EditTree("\uD83D\uDE00", true));
+		assertCodePoints("\uDE00\uD83D", new EditTree("\uDE00\uD83D", true));
+		assertCodePoints("a\uD83D\uD83D\uDE00\uDE00b", new EditTree("a\uD83D\uD83D\uDE00\uDE00b", true));
+	}
+
+	@Test
+	public void testCharEditsThatSplitAndJoinPairs() {
+		Random random = new Random(60);
+		EditTree t = new EditTree(true);
+		StringBuilder expected = new StringBuilder();
+		char[] chars = { 'a', '\uD83D', '\uDE00', '\uD83E', '\uDD14' };
+		for(int i = 0; i < 3000; i++) {
+			if(expected.length() > 0 && random.nextInt(3) == 0) {
+				int pos = random.nextInt(expected.length());
+				t.delete(pos);
+				expected.deleteCharAt(pos);
+			}
+			else {
+				int pos = random.nextInt(expected.length() + 1);
+				char c = chars[random.nextInt(chars.length)];
+				t.add(c, pos);
+				expected.insert(pos, c);
+			}
+			if(i % 100 == 0) {
+				assertCodePoints(expected.toString(), t);
+			}
+		}
+		assertCodePoints(expected.toString(), t);
+	}
+
+	@Test
+	public void testCodePointEdits() {
+		Random random = new Random(61);
+		String document = randomText(random, 3000);
+		EditTree t = new EditTree(document, true);
+		StringBuilder expected = new StringBuilder(document);
+		for(int i = 0; i < 1500; i++) {
+			int count = expected.codePointCount(0, expected.length());
+			int k = random.nextInt(count + 1);
+			int pos = expected.offsetByCodePoints(0, k);
+			int op = random.nextInt(4);
+			if(op == 0 && k < count) {
+				assertEquals(expected.codePointAt(pos), t.deleteCodePoint(k));
+				expected.delete(pos, expected.offsetByCodePoints(pos, 1));
+			}
+			else if(op == 1) {
+				int length = random.nextInt(Math.min(20, count - k) + 1);
+				int end = expected.offsetByCodePoints(pos, length);
+				assertEquals(expected.substring(pos, end), t.deleteCodePoints(k, length).toString());
+				expected.delete(pos, end);
+			}
+			else if(op == 2) {
+				String s = randomText(random, random.nextInt(30));
+				t.addAtCodePoint(s, k);
+				expected.insert(pos, s);
+			}
+			else {
+				int codePoint = random.nextBoolean() ? 0x1F600 + random.nextInt(50) : 'a' + random.nextInt(26);
+				t.addCodePoint(codePoint, k);
+				expected.insert(pos, Character.toChars(codePoint));
+			}
+		}
+		assertCodePoints(expected.toString(), t);
+	}
+
+	@Test
+	public void testRangeOperations() {
+		Random random = new Random(62);
+		String document = randomText(random, 5000);
+		EditTree t = new EditTree(document, true);
+		EditTree snapshot = t.snapshot();
+		// cut right through pairs: the pieces end and start with unpaired halves
+		for(int i = 0; i < 50; i++) {
+			int pos = random.nextInt(t.size() + 1);
+			EditTree suffix = t.split(pos);
+			assertCodePoints(document.substring(pos), suffix);
+			t.concat(suffix);
+			assertEquals(document.codePointCount(0, document.length()), t.codePointCount());
+		}
+		assertCodePoints(document, t);
+		assertCodePoints(document, snapshot);
+	}
+
+	@Test
+	public void testInvalidArguments() {
+		EditTree t = new EditTree("a\uD83D\uDE00", true);
+		int[] indexes = { -1, 3 };
+		for(int k : indexes) {
+			try {
+				t.codePointOffset(k);
+				fail("Did not throw IndexOutOfBoundsException");
+			} catch(IndexOutOfBoundsException e) {
+				// success
+			}
+			try {
+				t.addCodePoint('x', k);
+				fail("Did not throw IndexOutOfBoundsException");
+			} catch(IndexOutOfBoundsException e) {
+				// success
+			}
+		}
+		try {
+			t.deleteCodePoint(2);
+			fail("Did not throw IndexOutOfBoundsException");
+		} catch(IndexOutOfBoundsException e) {
+			// success
+		}
+		try {
+			t.deleteCodePoints(1, 2);
+			fail("Did not throw IndexOutOfBoundsException");
+		} catch(IndexOutOfBoundsException e) {
+			// success
+		}
+		try {
+			t.addCodePoint(0x110000, 0);
+			fail("Did not throw IllegalArgumentException");
+		} catch(IllegalArgumentException e) {
+			// success
+		}
+		assertCodePoints("a\uD83D\uDE00", t);
+	}
+
+}
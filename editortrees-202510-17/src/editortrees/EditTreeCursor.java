@@ -0,0 +1,126 @@
+package editortrees;
+
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+/**
+ * A position between two characters of an EditTree, as returned by
+ * EditTree.cursor(), that reads the characters on either side and moves past
+ * them. Placing it takes O(log n) time; after that, each next() or previous()
+ * is one in-order step through the tree, O(1) amortized, so walking through k
+ * characters takes O(k + log n) time and nothing is copied.
+ *
+ * Like the java.util iterators, a cursor is fail-fast: once its tree has been
+ * changed, every move throws ConcurrentModificationException, and a new
+ * cursor is needed.
+ */
+public class EditTreeCursor {
+	private final EditTree tree;
+	private final int expectedModCount;
+	private final PathStack path = new PathStack(); // ancestors of node
+	private Node node; // the character at nodePos, next to the cursor
+	private int nodePos; // pos or pos - 1, whichever character was read last
+	private int pos; // number of characters before the cursor
+
+	EditTreeCursor(EditTree tree, int pos) {
+		this.tree = tree;
+		this.expectedModCount = tree.modCount;
+		this.pos = pos;
+		this.nodePos = Math.min(pos, tree.size() - 1);
+		this.node = nodePos < 0 ? Node.NULL_NODE : Node.find(tree.root, nodePos, path);
+	}
+
+	/**
+	 * @return true if there is a character after the cursor
+	 */
+	public boolean hasNext() {
+		return pos < tree.size();
+	}
+
+	/**
+	 * @return true if there is a character before the cursor
+	 */
+	public boolean hasPrevious() {
+		return pos > 0;
+	}
+
+	/**
+	 * Moves the cursor forward past one character.
+	 *
+	 * @return the character moved past
+	 * @throws NoSuchElementException if the cursor is at the end of the tree
+	 */
+	public char next() {
+		checkForModification();
+		if(pos >= tree.size()) {
+			throw new NoSuchElementException();
+		}
+		moveTo(pos);
+		pos++;
+		return node.data;
+	}
+
+	/**
+	 * Moves the cursor back past one character.
+	 *
+	 * @return the character moved past
+	 * @throws NoSuchElementException if the cursor is at the start of the tree
+	 */
+	public char previous() {
+		checkForModification();
+		if(pos <= 0) {
+			throw new NoSuchElementException();
+		}
+		moveTo(pos - 1);
+		pos--;
+		return node.data;
+	}
+
+	/**
+	 * Moves the cursor forward past up to len characters, copying them into
+	 * buffer from index off on, like Reader.read(char[], int, int).
+	 *
+	 * @return the number of characters copied, or -1 if the cursor was at the
+	 *         end of the tree
+	 */
+	public int read(char[] buffer, int off, int len) {
+		checkForModification();
+		if(off < 0 || len < 0 || len > buffer.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+		int count = Math.min(len, tree.size() - pos);
+		if(count == 0) {
+			return len == 0 ? 0 : -1;
+		}
+		for(int i = 0; i < count; i++) {
+			moveTo(pos++);
+			buffer[off + i] = node.data;
+		}
+		return count;
+	}
+
+	/**
+	 * @return the number of characters before the cursor, which is where the
+	 *         character returned by the next call to next() is
+	 */
+	public int position() {
+		return pos;
+	}
+
+	// index is always next to nodePos, or equal to it
+	private void moveTo(int index) {
+		if(index > nodePos) {
+			node = path.successor(node);
+		}
+		else if(index < nodePos) {
+			node = path.predecessor(node);
+		}
+		nodePos = index;
+	}
+
+	private void checkForModification() {
+		if(tree.modCount != expectedModCount) {
+			throw new ConcurrentModificationException();
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package editortrees;
+
+import static editortrees.TestUtil.randomString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test cases for walking through an EditTree with an EditTreeCursor.
+ */
+public class EditTreeCursorTest {
+
+	@Test
+	public void testWalkForwardAndBack() {
+		String s = randomString(new Random(2), 10000);
+		EditTree t = new EditTree(s);
+		EditTreeCursor c = t.cursor(0);
+		assertFalse(c.hasPrevious());
+		StringBuilder forward = new StringBuilder();
+		while(c.hasNext()) {
+			forward.append(c.next());
+		}
+		assertEquals(s, forward.toString());
+		assertEquals(s.length(), c.position());
+		StringBuilder backward = new StringBuilder();
+		while(c.hasPrevious()) {
+			backward.append(c.previous());
+		}
+		assertEquals(s, backward.reverse().toString());
+		assertEquals(0, c.position());
+	}
+
+	@Test
+	public void testRandomMovesFromEveryStart() {
+		Random random = new Random(6);
+		EditTree t = new EditTree();
+		StringBuilder s = new StringBuilder();
+		for(int i = 0; i < 300; i++) {
+			// trees built by add, so they have every shape, not just full ones
+			char ch = (char) ('a' + random.nextInt(26));
+			int at = random.nextInt(s.length() + 1);
+			t.add(ch, at);
+			s.insert(at, ch);
+		}
+		for(int start = 0; start <= s.length(); start++) {
+			EditTreeCursor c = t.cursor(start);
+			int pos = start;
+			for(int i = 0; i < 40; i++) {
+				assertEquals(pos, c.position());
+				if(random.nextBoolean() && c.hasNext()) {
+					assertEquals(s.charAt(pos), c.next());
+					pos++;
+				}
+				else if(c.hasPrevious()) {
+					pos--;
+					assertEquals(s.charAt(pos), c.previous());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testEnds() {
+		EditTreeCursor c = new EditTree().cursor(0);
+		assertFalse(c.hasNext());
+		assertFalse(c.hasPrevious());
+		try {
+			c.next();
+			fail("Did not throw NoSuchElementException");
+		} catch(NoSuchElementException e) {
+			// success
+		}
+		EditTree t = new EditTree("ab");
+		c = t.cursor(2);
+		try {
+			c.next();
+			fail("Did not throw NoSuchElementException");
+		} catch(NoSuchElementException e) {
+			// success
+		}
+		assertEquals('b', c.previous());
+		assertEquals('b', c.next());
+		assertEquals('b', c.previous());
+		assertEquals('a', c.previous());
+		try {
+			c.previous();
+			fail("Did not throw NoSuchElementException");
+		} catch(NoSuchElementException e) {
+			// success
+		}
+		for(int pos : new int[] { -1, 3 }) {
+			try {
+				t.cursor(pos);
+				fail("Did not throw IndexOutOfBoundsException");
+			} catch(IndexOutOfBoundsException e) {
+				// success
+			}
+		}
+	}
+
+	@Test
+	public void testFailFast() {
+		EditTree t = new EditTree("abcdef");
+		EditTreeCursor c = t.cursor(2);
+		assertEquals('c', c.next());
+		t.add('x', 0);
+		try {
+			c.next();
+			fail("Did not throw ConcurrentModificationException");
+		} catch(ConcurrentModificationException e) {
+			// success
+		}
+		c = t.cursor(0);
+		t.concat(new EditTree("!"));
+		try {
+			c.previous();
+			fail("Did not throw ConcurrentModificationException");
+		} catch(ConcurrentModificationException e) {
+			// success
+		}
+		// a snapshot never changes, so its cursors stay usable
+		EditTree snapshot = t.snapshot();
+		c = snapshot.cursor(0);
+		t.delete(0);
+		assertEquals('x', c.next());
+	}
+
+}
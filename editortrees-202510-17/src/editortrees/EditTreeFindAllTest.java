@@ -0,0 +1,83 @@
+package editortrees;
+
+import static editortrees.TestUtil.randomString;
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test cases for findAll(), against repeated String.indexOf().
+ */
+public class EditTreeFindAllTest {
+
+	private static int[] expectedMatches(String s, String needle) {
+		int[] matches = new int[16];
+		int count = 0;
+		// an empty needle is found at every position, the end included
+		for(int i = s.indexOf(needle); i >= 0; i = i < s.length() ? s.indexOf(needle, i + 1) : -1) {
+			if(count == matches.length) {
+				matches = Arrays.copyOf(matches, count * 2);
+			}
+			matches[count++] = i;
+		}
+		return Arrays.copyOf(matches, count);
+	}
+
+	@Test
+	public void testSmallTrees() {
+		String[] texts = { "", "a", "aaaa", "abab", "aabaabaaab" };
+		String[] needles = { "", "a", "aa", "aba", "aab", "x", "aaaaa" };
+		for(String s : texts) {
+			EditTree t = new EditTree(s);
+			for(String needle : needles) {
+				assertArrayEquals(s + "/" + needle, expectedMatches(s, needle), t.findAll(needle));
+			}
+		}
+	}
+
+	@Test
+	public void testMatchesAcrossSeams() {
+		Random random = new Random(100);
+		// several chunks, with many matches, so plenty of them cross a seam
+		String s = randomString(random, 5 * EditTree.SEARCH_CHUNK + 321, 2);
+		EditTree t = new EditTree(s);
+		EditTree indexed = new EditTree(s, Arrays.asList(EditTree.CHARACTER_SETS));
+		for(int length = 1; length <= 12; length++) {
+			String needle = randomString(random, length, 2);
+			assertArrayEquals(needle, expectedMatches(s, needle), t.findAll(needle));
+			assertArrayEquals(needle, expectedMatches(s, needle), indexed.findAll(needle));
+		}
+		assertArrayEquals(expectedMatches(s, s.substring(1000, 200000)), t.findAll(s.substring(1000, 200000)));
+	}
+
+	@Test
+	public void testFindAllAfterEdits() {
+		Random random = new Random(101);
+		EditTree t = new EditTree(randomString(random, 3 * EditTree.SEARCH_CHUNK, 3));
+		for(int i = 0; i < 5000; i++) {
+			t.add((char) ('a' + random.nextInt(3)), random.nextInt(t.size() + 1));
+			t.delete(random.nextInt(t.size()));
+		}
+		t.delete(1000, EditTree.SEARCH_CHUNK);
+		String s = t.toString();
+		EditTree snapshot = t.snapshot();
+		for(String needle : new String[] { "abc", "cc", "abcabcab" }) {
+			assertArrayEquals(expectedMatches(s, needle), t.findAll(needle));
+			assertArrayEquals(expectedMatches(s, needle), snapshot.findAll(needle));
+		}
+	}
+
+	@Test
+	public void testLargeTree() {
+		Random random = new Random(102);
+		// enough chunks for several levels of forked tasks
+		String s = randomString(random, 8 * EditTree.SEARCH_CHUNK + 17, 26);
+		EditTree t = new EditTree(s);
+		String needle = "abc";
+		assertArrayEquals(expectedMatches(s, needle), t.findAll(needle));
+	}
+
+}
@@ -0,0 +1,66 @@
+package editortrees;
+
+import static editortrees.TestUtil.randomString;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test cases for reads served from the Finger. FingerBenchmark times them.
+ */
+public class EditTreeFingerTest {
+
+	@Test
+	public void testLocalAndFarReads() {
+		Random random = new Random(12);
+		EditTree t = new EditTree();
+		StringBuilder expected = new StringBuilder();
+		for(int i = 0; i < 2000; i++) {
+			char c = (char) ('a' + random.nextInt(26));
+			int pos = random.nextInt(expected.length() + 1);
+			t.add(c, pos);
+			expected.insert(pos, c);
+		}
+		int pos = 0;
+		for(int i = 0; i < 100000; i++) {
+			// mostly short hops, some far jumps
+			if(random.nextInt(50) == 0) {
+				pos = random.nextInt(expected.length());
+			}
+			else {
+				pos = Math.floorMod(pos + random.nextInt(21) - 10, expected.length());
+			}
+			assertEquals(expected.charAt(pos), t.get(pos));
+		}
+	}
+
+	@Test
+	public void testReadsBetweenEdits() {
+		Random random = new Random(14);
+		EditTree t = new EditTree(randomString(random, 1000));
+		StringBuilder expected = new StringBuilder(t.toString());
+		int caret = 500;
+		for(int i = 0; i < 5000; i++) {
+			if(random.nextInt(3) == 0 && caret > 0) {
+				caret--;
+				t.delete(caret);
+				expected.deleteCharAt(caret);
+			}
+			else {
+				char c = (char) ('a' + random.nextInt(26));
+				t.add(c, caret);
+				expected.insert(caret++, c);
+			}
+			if(random.nextInt(100) == 0) {
+				caret = random.nextInt(expected.length() + 1);
+			}
+			for(int j = Math.max(0, caret - 3); j < Math.min(expected.length(), caret + 3); j++) {
+				assertEquals(expected.charAt(j), t.get(j));
+			}
+		}
+		assertEquals(expected.toString(), t.toString());
+	}
+
+}
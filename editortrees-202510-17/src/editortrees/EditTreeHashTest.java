@@ -0,0 +1,175 @@
+package editortrees;
+
+import static editortrees.TestUtil.randomString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test cases for hash() and regionMatches().
+ */
+public class EditTreeHashTest {
+
+	private static final BigInteger MODULUS = BigInteger.valueOf(RollingHash.MODULUS);
+
+	// a tree that keeps HASHES, so it hashes ranges in O(log n)
+	private static EditTree hashed(String s) {
+		return new EditTree(s, Arrays.asList(EditTree.HASHES));
+	}
+
+	// the hash computed the slow way, with BigInteger
+	private static long slowHash(String s) {
+		BigInteger hash = BigInteger.ZERO;
+		BigInteger base = BigInteger.valueOf(RollingHash.BASE);
+		for(int i = 0; i < s.length(); i++) {
+			hash = hash.multiply(base).add(BigInteger.valueOf(s.charAt(i) + 1)).mod(MODULUS);
+		}
+		return hash.longValue();
+	}
+
+	private static String checkHashes(Node n) {
+		if(n == Node.NULL_NODE) {
+			return "";
+		}
+		String s = checkHashes(n.left) + n.data + checkHashes(n.right);
+		RollingHash.Value value = SummarizedNode.valueIn(n, 0);
+		assertEquals(RollingHash.of(s), value.hash);
+		assertEquals(RollingHash.power(s.length()), value.power);
+		return s;
+	}
+
+	@Test
+	public void testArithmetic() {
+		Random random = new Random(110);
+		for(int i = 0; i < 10000; i++) {
+			long a = (random.nextLong() >>> 3) % RollingHash.MODULUS;
+			long b = i < 10 ? RollingHash.MODULUS - 1 - i : (random.nextLong() >>> 3) % RollingHash.MODULUS;
+			BigInteger big = BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)).mod(MODULUS);
+			assertEquals(big.longValue(), RollingHash.multiply(a, b));
+			assertEquals((a + b) % RollingHash.MODULUS, RollingHash.add(a, b));
+			assertEquals(Math.floorMod(a - b, RollingHash.MODULUS), RollingHash.subtract(a, b));
+		}
+		String s = randomString(random, 1000, 26) + "\uFFFF\u0000\uD83D\uDE00";
+		assertEquals(slowHash(s), RollingHash.of(s));
+	}
+
+	@Test
+	public void testHashOfRanges() {
+		Random random = new Random(111);
+		String s = randomString(random, 3000, 26);
+		EditTree t = hashed(s);
+		EditTree plain = new EditTree(s);
+		assertEquals(s, checkHashes(t.root));
+		for(int i = 0; i < 2000; i++) {
+			int pos = random.nextInt(s.length() + 1);
+			int length = random.nextInt(s.length() - pos + 1);
+			assertEquals(slowHash(s.substring(pos, pos + length)), t.hash(pos, length));
+			assertEquals(t.hash(pos, length), plain.hash(pos, length));
+		}
+		assertEquals(0, t.hash(10, 0));
+		assertEquals(0, plain.hash(10, 0));
+		assertEquals(EditTree.hashOf(s), t.hash(0, s.length()));
+	}
+
+	@Test
+	public void testNulCharactersCount() {
+		assertTrue(EditTree.hashOf("\0a") != EditTree.hashOf("a"));
+		assertTrue(EditTree.hashOf("\0\0") != EditTree.hashOf(""));
+		EditTree t = hashed("\0a");
+		EditTree plain = new EditTree("\0a");
+		assertEquals(EditTree.hashOf("\0a"), t.hash(0, 2));
+		assertEquals(EditTree.hashOf("\0a"), plain.hash(0, 2));
+		assertTrue(t.hash(0, 2) != t.hash(1, 1));
+		assertTrue(plain.hash(0, 2) != plain.hash(1, 1));
+	}
+
+	@Test
+	public void testHashesAfterEdits() {
+		Random random = new Random(112);
+		EditTree t = hashed(randomString(random, 1000, 26));
+		EditTree snapshot = t.snapshot();
+		String before = snapshot.toString();
+		StringBuilder expected = new StringBuilder(before);
+		for(int i = 0; i < 3000; i++) {
+			int op = random.nextInt(4);
+			int pos = random.nextInt(expected.length() + 1);
+			if(op == 0) {
+				char c = (char) random.nextInt(0x10000);
+				t.add(c, pos);
+				expected.insert(pos, c);
+			}
+			else if(op == 1 && pos < expected.length()) {
+				t.delete(pos);
+				expected.deleteCharAt(pos);
+			}
+			else if(op == 2) {
+				String s = randomString(random, random.nextInt(30), 26);
+				t.add(s, pos);
+				expected.insert(pos, s);
+			}
+			else {
+				int length = random.nextInt(Math.min(30, expected.length() - pos) + 1);
+				t.delete(pos, length);
+				expected.delete(pos, pos + length);
+			}
+		}
+		assertEquals(expected.toString(), checkHashes(t.root));
+		assertEquals(before, checkHashes(snapshot.root));
+		EditTree suffix = t.split(expected.length() / 3);
+		checkHashes(t.root);
+		checkHashes(suffix.root);
+		t.concat(suffix);
+		assertEquals(expected.toString(), checkHashes(t.root));
+	}
+
+	@Test
+	public void testRegionMatches() {
+		Random random = new Random(113);
+		// few letters, so that equal regions are common
+		String s = randomString(random, 2000, 2);
+		String r = s.substring(500) + randomString(random, 700, 2);
+		EditTree t = hashed(s);
+		// built differently, so the same text sits in differently shaped subtrees
+		EditTree u = hashed("");
+		for(int i = 0; i < r.length(); i++) {
+			u.add(r.charAt(i), i);
+		}
+		// compared character by character
+		EditTree plain = new EditTree(r);
+		for(int i = 0; i < 5000; i++) {
+			int pos = random.nextInt(s.length() + 10) - 5;
+			int otherPos = random.nextInt(r.length() + 10) - 5;
+			int length = random.nextInt(i % 2 == 0 ? 6 : 400) - 1;
+			boolean expected = s.regionMatches(pos, r, otherPos, length);
+			assertEquals(expected, t.regionMatches(pos, u, otherPos, length));
+			assertEquals(expected, t.regionMatches(pos, plain, otherPos, length));
+		}
+		assertTrue(t.regionMatches(500, u, 0, 1500));
+		assertFalse(t.regionMatches(499, u, 0, 1500));
+		assertTrue(t.regionMatches(500, plain, 0, 1500));
+		assertFalse(t.regionMatches(499, plain, 0, 1500));
+		assertTrue(t.regionMatches(0, t.snapshot(), 0, s.length()));
+	}
+
+	@Test
+	public void testInvalidRanges() {
+		EditTree t = new EditTree("abc");
+		int[][] ranges = { { -1, 1 }, { 0, 4 }, { 2, 2 }, { 1, -1 } };
+		for(int[] range : ranges) {
+			try {
+				t.hash(range[0], range[1]);
+				fail("Did not throw IndexOutOfBoundsException");
+			} catch(IndexOutOfBoundsException e) {
+				// success
+			}
+		}
+	}
+
+}
@@ -0,0 +1,162 @@
+package editortrees;
+
+import static editortrees.TestUtil.randomLines;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test cases for the line index kept by counting newlines in every subtree.
+ */
+public class EditTreeLineTest {
+
+	// checks every node's count against a count of its subtree
+	private static int checkNewlines(Node n) {
+		if(n == Node.NULL_NODE) {
+			return 0;
+		}
+		int count = checkNewlines(n.left) + checkNewlines(n.right) + (n.data == '\n' ? 1 : 0);
+		assertEquals(count, ((CountedNode) n).newlines);
+		return count;
+	}
+
+	private static void assertLines(String expected, EditTree t) {
+		assertEquals(expected, t.toString());
+		checkNewlines(t.root);
+		String[] lines = expected.split("\n", -1);
+		assertEquals(lines.length, t.lineCount());
+		int offset = 0;
+		for(int line = 0; line < lines.length; line++) {
+			assertEquals(offset, t.offsetOfLine(line));
+			assertEquals(lines[line], t.getLine(line));
+			for(int i = 0; i <= lines[line].length(); i++) {
+				if(offset + i <= expected.length()) {
+					assertEquals(line, t.lineOfOffset(offset + i));
+				}
+			}
+			offset += lines[line].length() + 1;
+		}
+	}
+
+	@Test
+	public void testSmallDocuments() {
+		assertLines("", new EditTree(true));
+		assertLines("\n", new EditTree("\n", true));
+		assertLines("a\n\nb", new EditTree("a\n\nb", true));
+		EditTree t = new EditTree("x", true);
+		t.add('\n', 0);
+		t.add('\n');
+		assertLines("\nx\n", t);
+	}
+
+	@Test
+	public void testInvalidArguments() {
+		EditTree t = new EditTree("a\nb", true);
+		int[] lines = { -1, 2 };
+		for(int line : lines) {
+			try {
+				t.offsetOfLine(line);
+				fail("Did not throw IndexOutOfBoundsException");
+			} catch(IndexOutOfBoundsException e) {
+				// success
+			}
+			try {
+				t.getLine(line);
+				fail("Did not throw IndexOutOfBoundsException");
+			} catch(IndexOutOfBoundsException e) {
+				// success
+			}
+		}
+		for(int offset : new int[] { -1, 4 }) {
+			try {
+				t.lineOfOffset(offset);
+				fail("Did not throw IndexOutOfBoundsException");
+			} catch(IndexOutOfBoundsException e) {
+				// success
+			}
+		}
+	}
+
+	@Test
+	public void testPlainTreesDontCount() {
+		EditTree t = new EditTree("a\nb");
+		assertFalse(t.root instanceof CountedNode);
+		try {
+			t.lineCount();
+			fail("Did not throw UnsupportedOperationException");
+		} catch(UnsupportedOperationException e) {
+			// success
+		}
+		try {
+			t.concat(new EditTree("c", true));
+			fail("Did not throw IllegalArgumentException");
+		} catch(IllegalArgumentException e) {
+			// success
+		}
+		EditTree counted = new EditTree("a\nb", true);
+		assertTrue(counted.delete(0, 2).root instanceof CountedNode);
+		assertTrue(counted.split(0).root instanceof CountedNode);
+	}
+
+	@Test
+	public void testSingleCharacterEdits() {
+		Random random = new Random(50);
+		EditTree t = new EditTree(true);
+		StringBuilder expected = new StringBuilder();
+		for(int i = 0; i < 4000; i++) {
+			if(expected.length() > 0 && random.nextInt(3) == 0) {
+				int pos = random.nextInt(expected.length());
+				assertEquals(expected.charAt(pos), t.delete(pos));
+				expected.deleteCharAt(pos);
+			}
+			else {
+				int pos = random.nextInt(expected.length() + 1);
+				char c = random.nextInt(5) == 0 ? '\n' : 'a';
+				t.add(c, pos);
+				expected.insert(pos, c);
+			}
+			if(i % 200 == 0) {
+				assertLines(expected.toString(), t);
+			}
+		}
+		assertLines(expected.toString(), t);
+	}
+
+	@Test
+	public void testRangeOperationsAndSnapshots() {
+		Random random = new Random(51);
+		String document = randomLines(random, 20000);
+		EditTree t = new EditTree(document, true);
+		assertLines(document, t);
+		EditTree snapshot = t.snapshot();
+		StringBuilder expected = new StringBuilder(document);
+		for(int i = 0; i < 200; i++) {
+			int pos = random.nextInt(expected.length() + 1);
+			if(random.nextBoolean()) {
+				int length = random.nextInt(Math.min(500, expected.length() - pos) + 1);
+				t.delete(pos, length);
+				expected.delete(pos, pos + length);
+			}
+			else {
+				String s = randomLines(random, random.nextInt(500));
+				t.add(s, pos);
+				expected.insert(pos, s);
+			}
+		}
+		assertLines(expected.toString(), t);
+		int pos = expected.length() / 2;
+		EditTree suffix = t.split(pos);
+		assertLines(expected.substring(0, pos), t);
+		assertLines(expected.substring(pos), suffix);
+		t.concat(suffix);
+		assertLines(expected.toString(), t);
+		assertLines(document, snapshot);
+		assertLines(document, new EditTree(snapshot));
+	}
+
+}
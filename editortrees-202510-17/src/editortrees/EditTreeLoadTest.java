@@ -0,0 +1,235 @@
+package editortrees;
+
+import static editortrees.TestUtil.assertValid;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test cases for building an EditTree from a Reader, a channel or a file.
+ */
+public class EditTreeLoadTest {
+
+	private static String randomText(Random random, int length) {
+		StringBuilder result = new StringBuilder(length);
+		while(result.length() < length) {
+			int kind = random.nextInt(20);
+			if(kind == 0) {
+				result.appendCodePoint(0x1F600 + random.nextInt(50));
+			}
+			else if(kind == 1) {
+				result.append((char) (0x3040 + random.nextInt(0x60)));
+			}
+			else if(kind == 2) {
+				result.append('\n');
+			}
+			else {
+				result.append((char) ('a' + random.nextInt(26)));
+			}
+		}
+		return result.toString();
+	}
+
+	// built without a single rotation, since loading only joins balanced trees
+	private static void assertLoaded(String expected, EditTree t) {
+		assertValid(expected, t);
+		assertEquals(0, t.totalRotationCount());
+	}
+
+	// hands out at most a few characters per read, like a slow stream
+	private static class TrickleReader extends Reader {
+		private final String s;
+		private final Random random = new Random(0);
+		private int pos;
+
+		TrickleReader(String s) {
+			this.s = s;
+		}
+
+		@Override
+		public int read(char[] buffer, int off, int len) {
+			if(pos == s.length()) {
+				return -1;
+			}
+			int count = Math.min(Math.min(len, 1 + random.nextInt(100)), s.length() - pos);
+			s.getChars(pos, pos + count, buffer, off);
+			pos += count;
+			return count;
+		}
+
+		@Override
+		public void close() {
+			// nothing to close
+		}
+	}
+
+	@Test
+	public void testReader() throws IOException {
+		Random random = new Random(40);
+		for(int length : new int[] { 0, 1, 2, 1000, EditTree.READ_BUFFER, EditTree.READ_BUFFER + 1,
+				5 * EditTree.READ_BUFFER + 123 }) {
+			String s = randomText(random, length);
+			assertLoaded(s, new EditTree(new StringReader(s)));
+		}
+		String s = randomText(random, 300000);
+		assertLoaded(s, new EditTree(new TrickleReader(s)));
+	}
+
+	@Test
+	public void testChannel() throws IOException {
+		Random random = new Random(41);
+		Charset[] charsets = { StandardCharsets.UTF_8, StandardCharsets.UTF_16, StandardCharsets.ISO_8859_1 };
+		for(int length : new int[] { 0, 1, 1000, EditTree.READ_BUFFER - 1, 3 * EditTree.READ_BUFFER + 7 }) {
+			String s = randomText(random, length);
+			for(Charset charset : charsets) {
+				byte[] bytes = s.getBytes(charset);
+				EditTree t = new EditTree(Channels.newChannel(new ByteArrayInputStream(bytes)), charset);
+				assertLoaded(new String(bytes, charset), t);
+			}
+		}
+	}
+
+	@Test
+	public void testMalformedBytesAreReplaced() throws IOException {
+		byte[] bytes = { 'a', (byte) 0xC3, 'b', (byte) 0xFF, 'c', (byte) 0xE2, (byte) 0x82 };
+		EditTree t = new EditTree(Channels.newChannel(new ByteArrayInputStream(bytes)), StandardCharsets.UTF_8);
+		assertLoaded(new String(bytes, StandardCharsets.UTF_8), t);
+	}
+
+	@Test
+	public void testLoadedTreeCanBeEdited() throws IOException {
+		Random random = new Random(42);
+		String s = randomText(random, 200000);
+		EditTree t = new EditTree(new StringReader(s));
+		StringBuilder expected = new StringBuilder(s);
+		for(int i = 0; i < 2000; i++) {
+			int pos = random.nextInt(expected.length());
+			assertEquals(expected.charAt(pos), t.delete(pos));
+			expected.deleteCharAt(pos);
+			t.add('x', pos);
+			expected.insert(pos, 'x');
+		}
+		assertEquals(expected.toString(), t.toString());
+		assertTrue(t.ranksMatchLeftSubtreeSize());
+		assertTrue(t.balanceCodesAreCorrect());
+	}
+
+	private static EditTree openBytes(byte[] bytes, Charset charset) throws IOException {
+		Path file = Files.createTempFile("edittree", ".txt");
+		try {
+			Files.write(file, bytes);
+			return EditTree.open(file, charset);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	private static EditTree openBytes(byte[] bytes, Charset charset, boolean counted) throws IOException {
+		Path file = Files.createTempFile("edittree", ".txt");
+		try {
+			Files.write(file, bytes);
+			return EditTree.open(file, charset, counted);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	private static EditTree openBytes(byte[] bytes, Charset charset, List<? extends Summary<?>> summaries)
+			throws IOException {
+		Path file = Files.createTempFile("edittree", ".txt");
+		try {
+			Files.write(file, bytes);
+			return EditTree.open(file, charset, summaries);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testOpenSegmentedFile() throws IOException {
+		Random random = new Random(43);
+		// several segments, so that most boundaries land inside a character
+		String s = randomText(random, (int) (3.5 * EditTree.SEGMENT_BYTES));
+		for(Charset charset : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1,
+				StandardCharsets.UTF_16 }) {
+			byte[] bytes = s.getBytes(charset);
+			assertLoaded(new String(bytes, charset), openBytes(bytes, charset));
+		}
+	}
+
+	@Test
+	public void testOpenSmallFiles() throws IOException {
+		assertLoaded("", openBytes(new byte[0], StandardCharsets.UTF_8));
+		assertLoaded("x", openBytes(new byte[] { 'x' }, StandardCharsets.UTF_8));
+		String s = "caf\u00e9 \u65e5\u672c \uD83D\uDE00\n";
+		assertLoaded(s, openBytes(s.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+	}
+
+	// t must count lines and code points, and keep HASHES if hashed is set
+	private static void assertCounted(String expected, EditTree t, boolean hashed) {
+		assertLoaded(expected, t);
+		assertEquals(expected.split("\n", -1).length, t.lineCount());
+		assertEquals(expected.codePointCount(0, expected.length()), t.codePointCount());
+		if(hashed) {
+			assertEquals(EditTree.hashOf(expected), t.hash(0, t.size()));
+			assertTrue(t.regionMatches(0, new EditTree(expected, Arrays.asList(EditTree.HASHES)), 0, t.size()));
+		}
+	}
+
+	@Test
+	public void testLoadCountedTrees() throws IOException {
+		Random random = new Random(44);
+		String s = randomText(random, 3 * EditTree.READ_BUFFER + 7);
+		List<Summary<?>> hashes = Arrays.asList(EditTree.HASHES);
+		assertCounted(s, new EditTree(new StringReader(s), true), false);
+		assertCounted(s, new EditTree(new StringReader(s), hashes), true);
+		assertEquals(s, new EditTree(new StringReader(s), false).toString());
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		assertCounted(s, new EditTree(Channels.newChannel(new ByteArrayInputStream(bytes)), StandardCharsets.UTF_8,
+				true), false);
+		assertCounted(s, new EditTree(Channels.newChannel(new ByteArrayInputStream(bytes)), StandardCharsets.UTF_8,
+				hashes), true);
+
+		// a charset open() can't cut into segments, and one it can
+		for(Charset charset : new Charset[] { StandardCharsets.UTF_16, StandardCharsets.UTF_8 }) {
+			byte[] encoded = s.getBytes(charset);
+			String expected = new String(encoded, charset);
+			assertCounted(expected, openBytes(encoded, charset, true), false);
+			assertCounted(expected, openBytes(encoded, charset, hashes), true);
+		}
+		// several segments, joined by concatenation
+		String large = randomText(random, (int) (1.2 * EditTree.SEGMENT_BYTES));
+		byte[] encoded = large.getBytes(StandardCharsets.UTF_8);
+		assertCounted(large, openBytes(encoded, StandardCharsets.UTF_8, true), false);
+	}
+
+	@Test
+	public void testOpenMalformedAtSegmentBoundary() throws IOException {
+		int boundary = (int) EditTree.SEGMENT_BYTES;
+		byte[] bytes = new byte[boundary + 100];
+		Arrays.fill(bytes, (byte) 'a');
+		// a truncated 3-byte character right before the boundary, and stray
+		// continuation bytes right after it
+		bytes[boundary - 2] = (byte) 0xE2;
+		bytes[boundary - 1] = (byte) 0x82;
+		for(int i = 0; i < 5; i++) {
+			bytes[boundary + i] = (byte) 0x80;
+		}
+		assertLoaded(new String(bytes, StandardCharsets.UTF_8), openBytes(bytes, StandardCharsets.UTF_8));
+	}
+
+}
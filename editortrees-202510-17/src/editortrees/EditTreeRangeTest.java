@@ -0,0 +1,246 @@
+package editortrees;
+
+import static editortrees.TestUtil.assertValid;
+import static editortrees.TestUtil.randomString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test cases for the operations that work on a whole range of characters at
+ * once instead of one character at a time.
+ */
+public class EditTreeRangeTest {
+
+	@Test
+	public void testStringConstructorBalanceCodes() {
+		StringBuilder s = new StringBuilder();
+		for(int n = 0; n < 600; n++) {
+			assertValid(s.toString(), new EditTree(s.toString()));
+			s.append((char) ('a' + n % 26));
+		}
+	}
+
+	@Test
+	public void testAddStringToEmptyTree() {
+		EditTree t = new EditTree();
+		t.add("hello", 0);
+		assertValid("hello", t);
+		t.add("", 2);
+		assertValid("hello", t);
+	}
+
+	@Test
+	public void testAddStringAtEnds() {
+		EditTree t = new EditTree("world");
+		t.add("hello ", 0);
+		assertValid("hello world", t);
+		t.add("!", t.size());
+		assertValid("hello world!", t);
+		t.add(new StringBuilder(", big"), 5);
+		assertValid("hello, big world!", t);
+	}
+
+	@Test
+	public void testAddStringInvalidPosition() {
+		EditTree t = new EditTree("abc");
+		try {
+			t.add("x", 4);
+			fail("Did not throw IndexOutOfBoundsException");
+		} catch(IndexOutOfBoundsException e) {
+			// success
+		}
+		try {
+			t.add("x", -1);
+			fail("Did not throw IndexOutOfBoundsException");
+		} catch(IndexOutOfBoundsException e) {
+			// success
+		}
+		assertValid("abc", t);
+	}
+
+	@Test
+	public void testAddStringRandom() {
+		Random random = new Random(17);
+		EditTree t = new EditTree();
+		StringBuilder expected = new StringBuilder();
+		for(int i = 0; i < 500; i++) {
+			// mix very short and long pastes so both trees can be the taller one
+			String s = randomString(random, random.nextInt(3) == 0 ? random.nextInt(2000) : random.nextInt(5));
+			int pos = random.nextInt(expected.length() + 1);
+			t.add(s, pos);
+			expected.insert(pos, s);
+			if(random.nextInt(4) == 0 && expected.length() > 0) {
+				pos = random.nextInt(expected.length());
+				assertEquals(expected.charAt(pos), t.delete(pos));
+				expected.deleteCharAt(pos);
+			}
+			if(i % 25 == 0) {
+				assertValid(expected.toString(), t);
+			}
+		}
+		assertValid(expected.toString(), t);
+	}
+
+	@Test
+	public void testLargePasteIntoLargeDocument() {
+		Random random = new Random(1);
+		String document = randomString(random, 1000000);
+		String paste = randomString(random, 100000);
+		EditTree t = new EditTree(document);
+		for(int i = 0; i < 20; i++) {
+			t.add(paste, random.nextInt(t.size() + 1));
+		}
+		assertEquals(document.length() + 20 * paste.length(), t.size());
+		assertTrue(t.ranksMatchLeftSubtreeSize());
+		assertTrue(t.balanceCodesAreCorrect());
+	}
+
+	@Test
+	public void testDeleteRange() {
+		EditTree t = new EditTree("hello, big world!");
+		EditTree removed = t.delete(5, 5);
+		assertValid("hello world!", t);
+		assertValid(", big", removed);
+		assertValid("", t.delete(3, 0));
+		assertValid("hello world!", t);
+		assertValid("hello world!", t.delete(0, t.size()));
+		assertValid("", t);
+	}
+
+	@Test
+	public void testDeleteRangeInvalid() {
+		EditTree t = new EditTree("abc");
+		int[][] ranges = { { -1, 1 }, { 0, 4 }, { 3, 1 }, { 1, -1 }, { 2, Integer.MAX_VALUE } };
+		for(int[] range : ranges) {
+			try {
+				t.delete(range[0], range[1]);
+				fail("Did not throw IndexOutOfBoundsException");
+			} catch(IndexOutOfBoundsException e) {
+				// success
+			}
+		}
+		assertValid("abc", t);
+	}
+
+	@Test
+	public void testDeleteRangeRandom() {
+		Random random = new Random(29);
+		String document = randomString(random, 20000);
+		EditTree t = new EditTree(document);
+		StringBuilder expected = new StringBuilder(document);
+		for(int i = 0; i < 400; i++) {
+			if(random.nextBoolean()) {
+				int pos = random.nextInt(expected.length() + 1);
+				int length = random.nextInt(Math.min(200, expected.length() - pos) + 1);
+				String removed = t.delete(pos, length).toString();
+				assertEquals(expected.substring(pos, pos + length), removed);
+				expected.delete(pos, pos + length);
+			}
+			else {
+				String s = randomString(random, random.nextInt(150));
+				int pos = random.nextInt(expected.length() + 1);
+				t.add(s, pos);
+				expected.insert(pos, s);
+			}
+			if(i % 20 == 0) {
+				assertValid(expected.toString(), t);
+			}
+		}
+		assertValid(expected.toString(), t);
+	}
+
+	@Test
+	public void testDeleteSecondHalfOfLargeDocument() {
+		String document = randomString(new Random(2), 2000000);
+		EditTree t = new EditTree(document);
+		EditTree removed = t.delete(t.size() / 2, t.size() - t.size() / 2);
+		assertEquals(1000000, t.size());
+		assertEquals(1000000, removed.size());
+		assertTrue(t.ranksMatchLeftSubtreeSize());
+		assertTrue(t.balanceCodesAreCorrect());
+		assertEquals(document.substring(999990, 1000010), t.get(999990, 10) + removed.get(0, 10));
+	}
+
+	@Test
+	public void testSplit() {
+		EditTree t = new EditTree("hello world");
+		EditTree suffix = t.split(5);
+		assertValid("hello", t);
+		assertValid(" world", suffix);
+		assertValid("", t.split(5));
+		assertValid("hello", t);
+		EditTree all = t.split(0);
+		assertValid("", t);
+		assertValid("hello", all);
+		try {
+			all.split(6);
+			fail("Did not throw IndexOutOfBoundsException");
+		} catch(IndexOutOfBoundsException e) {
+			// success
+		}
+	}
+
+	@Test
+	public void testConcat() {
+		EditTree t = new EditTree("hello");
+		EditTree other = new EditTree(" world");
+		t.concat(other);
+		assertValid("hello world", t);
+		assertValid("", other);
+		t.concat(new EditTree());
+		assertValid("hello world", t);
+		EditTree empty = new EditTree();
+		empty.concat(t);
+		assertValid("hello world", empty);
+		try {
+			empty.concat(empty);
+			fail("Did not throw IllegalArgumentException");
+		} catch(IllegalArgumentException e) {
+			// success
+		}
+	}
+
+	@Test
+	public void testSplitAndConcatRandom() {
+		Random random = new Random(31);
+		String document = randomString(random, 50000);
+		for(int i = 0; i < 200; i++) {
+			EditTree t = new EditTree(document);
+			int pos = random.nextInt(document.length() + 1);
+			EditTree suffix = t.split(pos);
+			assertValid(document.substring(0, pos), t);
+			assertValid(document.substring(pos), suffix);
+			t.concat(suffix);
+			assertValid(document, t);
+		}
+	}
+
+	@Test
+	public void testConcatManyParts() {
+		Random random = new Random(37);
+		EditTree t = new EditTree();
+		StringBuilder expected = new StringBuilder();
+		for(int i = 0; i < 300; i++) {
+			// parts of very different heights, built both ways
+			String part = randomString(random, random.nextInt(4) == 0 ? random.nextInt(5000) : random.nextInt(10));
+			EditTree partTree = new EditTree();
+			if(random.nextBoolean()) {
+				partTree.add(part, 0);
+			}
+			else {
+				for(int j = 0; j < part.length(); j++) {
+					partTree.add(part.charAt(j));
+				}
+			}
+			t.concat(partTree);
+			expected.append(part);
+		}
+		assertValid(expected.toString(), t);
+	}
+
+}
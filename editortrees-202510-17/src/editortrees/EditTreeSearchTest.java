@@ -0,0 +1,156 @@
+package editortrees;
+
+import static editortrees.TestUtil.randomString;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test cases for indexOf() and lastIndexOf(), against String's.
+ */
+public class EditTreeSearchTest {
+
+	// a tree that keeps CHARACTER_SETS, so searches skip subtrees
+	private static EditTree indexed(String s) {
+		return new EditTree(s, Arrays.asList(EditTree.CHARACTER_SETS));
+	}
+
+	private static void assertSearches(String s, EditTree t, String needle) {
+		for(int from = -2; from <= s.length() + 2; from++) {
+			assertEquals(s.indexOf(needle, from), t.indexOf(needle, from));
+			assertEquals(s.lastIndexOf(needle, from), t.lastIndexOf(needle, from));
+		}
+		assertEquals(s.indexOf(needle), t.indexOf(needle));
+		assertEquals(s.lastIndexOf(needle), t.lastIndexOf(needle));
+	}
+
+	@Test
+	public void testSmallCases() {
+		String[] texts = { "", "a", "aaaa", "abab", "aabaabaaab" };
+		String[] needles = { "", "a", "aa", "ab", "aab", "aabaaab", "b", "x", "aaaaa" };
+		for(String s : texts) {
+			EditTree t = new EditTree(s);
+			EditTree indexed = indexed(s);
+			for(String needle : needles) {
+				assertSearches(s, t, needle);
+				assertSearches(s, indexed, needle);
+			}
+		}
+	}
+
+	@Test
+	public void testRandomNeedles() {
+		Random random = new Random(90);
+		// few letters, so needles have long borders and many partial matches
+		for(int letters : new int[] { 2, 3, 26 }) {
+			String s = randomString(random, 600, letters);
+			EditTree t = new EditTree(s);
+			EditTree indexed = indexed(s);
+			for(int i = 0; i < 30; i++) {
+				String needle;
+				if(random.nextBoolean()) {
+					int pos = random.nextInt(s.length());
+					needle = s.substring(pos, Math.min(s.length(), pos + 1 + random.nextInt(12)));
+				}
+				else {
+					needle = randomString(random, 1 + random.nextInt(8), letters);
+				}
+				assertSearches(s, t, needle);
+				assertSearches(s, indexed, needle);
+			}
+		}
+	}
+
+	@Test
+	public void testSearchAfterEdits() {
+		Random random = new Random(91);
+		EditTree t = indexed("");
+		StringBuilder expected = new StringBuilder();
+		for(int i = 0; i < 2000; i++) {
+			int pos = random.nextInt(expected.length() + 1);
+			char c = (char) ('a' + random.nextInt(3));
+			t.add(c, pos);
+			expected.insert(pos, c);
+		}
+		String s = expected.toString();
+		for(int i = 0; i < 200; i++) {
+			String needle = randomString(random, 1 + random.nextInt(10), 3);
+			int from = random.nextInt(s.length() + 1);
+			assertEquals(s.indexOf(needle, from), t.indexOf(needle, from));
+			assertEquals(s.lastIndexOf(needle, from), t.lastIndexOf(needle, from));
+		}
+		EditTree snapshot = t.snapshot();
+		assertEquals(s.indexOf("abcab"), snapshot.indexOf(new StringBuilder("abcab")));
+	}
+
+	private static long checkChars(Node n) {
+		if(n == Node.NULL_NODE) {
+			return 0;
+		}
+		long chars = checkChars(n.left) | Node.charBit(n.data) | checkChars(n.right);
+		assertEquals(chars, (long) SummarizedNode.<Long>valueIn(n, 0));
+		return chars;
+	}
+
+	@Test
+	public void testCharBitsAfterEdits() {
+		Random random = new Random(93);
+		EditTree t = indexed(randomString(random, 3000, 26));
+		EditTree snapshot = t.snapshot();
+		for(int i = 0; i < 3000; i++) {
+			int op = random.nextInt(4);
+			if(op == 0) {
+				t.add((char) random.nextInt(0x3000), random.nextInt(t.size() + 1));
+			}
+			else if(op == 1) {
+				t.delete(random.nextInt(t.size()));
+			}
+			else if(op == 2) {
+				int pos = random.nextInt(t.size() + 1);
+				t.add(randomString(random, random.nextInt(20), 26), pos);
+			}
+			else {
+				int pos = random.nextInt(t.size());
+				t.delete(pos, Math.min(t.size() - pos, random.nextInt(20)));
+			}
+		}
+		checkChars(t.root);
+		checkChars(snapshot.root);
+		EditTree suffix = t.split(t.size() / 2);
+		checkChars(t.root);
+		checkChars(suffix.root);
+	}
+
+	@Test
+	public void testRareNeedleInLargeTree() {
+		// a log of mostly lowercase text, with one rare identifier near its end
+		Random random = new Random(94);
+		String s = randomString(random, 100000, 26);
+		EditTree t = indexed(s);
+		t.add("Q42", 90000);
+		assertEquals(90000, t.indexOf("Q42"));
+		assertEquals(s.indexOf("zzzz"), t.indexOf("zzzz"));
+		assertEquals(90000, t.lastIndexOf("Q42"));
+		assertEquals(-1, t.indexOf("Q43"));
+	}
+
+	@Test
+	public void testFindNextOnLargeTree() {
+		Random random = new Random(92);
+		String s = randomString(random, 50000, 26);
+		EditTree t = new EditTree(s);
+		String needle = "needle";
+		t.add(needle, 40000);
+		t.add(needle, 10);
+		int first = t.indexOf(needle);
+		int second = t.indexOf(needle, first + 1);
+		assertEquals(10, first);
+		assertEquals(40000 + needle.length(), second);
+		assertEquals(-1, t.indexOf(needle, second + 1));
+		assertEquals(second, t.lastIndexOf(needle));
+	}
+
+}
@@ -0,0 +1,67 @@
+package editortrees;
+
+import java.util.ConcurrentModificationException;
+
+/**
+ * The characters from start to start + length of an EditTree, as returned by
+ * EditTree.subSequence(). Nothing is copied until toString() is called, and
+ * reading it in order is as fast as reading the tree in order. Like
+ * EditTreeCursor, it is fail-fast: once its tree has been changed, reading it
+ * throws ConcurrentModificationException.
+ */
+class EditTreeSlice implements CharSequence {
+	private final EditTree tree;
+	private final int expectedModCount;
+	private final int start;
+	private final int length;
+
+	EditTreeSlice(EditTree tree, int start, int length) {
+		this(tree, tree.modCount, start, length);
+	}
+
+	private EditTreeSlice(EditTree tree, int expectedModCount, int start, int length) {
+		this.tree = tree;
+		this.expectedModCount = expectedModCount;
+		this.start = start;
+		this.length = length;
+	}
+
+	@Override
+	public int length() {
+		checkForModification();
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if(index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException();
+		}
+		checkForModification();
+		return tree.charAt(start + index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if(start < 0 || end > length || start > end) {
+			throw new IndexOutOfBoundsException();
+		}
+		checkForModification();
+		return new EditTreeSlice(tree, expectedModCount, this.start + start, end - start);
+	}
+
+	@Override
+	public String toString() {
+		checkForModification();
+		if(length == 0) {
+			return "";
+		}
+		return tree.get(start, length);
+	}
+
+	private void checkForModification() {
+		if(tree.modCount != expectedModCount) {
+			throw new ConcurrentModificationException();
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package editortrees;
+
+import static editortrees.TestUtil.assertValid;
+import static editortrees.TestUtil.randomString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test cases for EditTree.snapshot(): snapshots share nodes with their tree but
+ * must never see the edits made to it afterwards.
+ */
+public class EditTreeSnapshotTest {
+
+	@Test
+	public void testSnapshotKeepsContents() {
+		EditTree t = new EditTree("hello world");
+		EditTree snapshot = t.snapshot();
+		t.add('!');
+		t.delete(0);
+		t.add('H', 0);
+		assertValid("Hello world!", t);
+		assertValid("hello world", snapshot);
+		assertTrue(snapshot.isReadOnly());
+		assertFalse(t.isReadOnly());
+	}
+
+	@Test
+	public void testSnapshotSharesNodes() {
+		EditTree t = new EditTree("abcdefg");
+		EditTree snapshot = t.snapshot();
+		assertTrue(snapshot.root == t.root);
+		t.add('x', 7);
+		// only the path down the right spine was copied
+		assertTrue(snapshot.root.left == t.root.left);
+		assertTrue(snapshot.root != t.root);
+	}
+
+	@Test
+	public void testSnapshotIsReadOnly() {
+		EditTree t = new EditTree("abc");
+		EditTree snapshot = t.snapshot();
+		Runnable[] edits = { () -> snapshot.add('x'), () -> snapshot.add('x', 0), () -> snapshot.add("xy", 1),
+				() -> snapshot.delete(0), () -> snapshot.delete(0, 2), () -> snapshot.split(1),
+				() -> snapshot.concat(new EditTree("x")), () -> t.concat(snapshot) };
+		for(Runnable edit : edits) {
+			try {
+				edit.run();
+				fail("Did not throw UnsupportedOperationException");
+			} catch(UnsupportedOperationException e) {
+				// success
+			}
+		}
+		assertValid("abc", snapshot);
+		assertValid("abc", t);
+		assertEquals("bc", snapshot.get(1, 2));
+		assertValid("abc", new EditTree(snapshot));
+	}
+
+	@Test
+	public void testManySnapshotsDuringRandomEdits() {
+		Random random = new Random(11);
+		EditTree t = new EditTree(randomString(random, 2000));
+		StringBuilder expected = new StringBuilder(t.toString());
+		ArrayList<EditTree> snapshots = new ArrayList<>();
+		ArrayList<String> contents = new ArrayList<>();
+		for(int i = 0; i < 3000; i++) {
+			int op = random.nextInt(10);
+			if(op < 5) {
+				int pos = random.nextInt(expected.length() + 1);
+				char c = (char) ('a' + random.nextInt(26));
+				t.add(c, pos);
+				expected.insert(pos, c);
+			}
+			else if(op < 9 && expected.length() > 0) {
+				int pos = random.nextInt(expected.length());
+				assertEquals(expected.charAt(pos), t.delete(pos));
+				expected.deleteCharAt(pos);
+			}
+			else {
+				int pos = random.nextInt(expected.length() + 1);
+				String s = randomString(random, random.nextInt(50));
+				t.add(s, pos);
+				expected.insert(pos, s);
+			}
+			if(i % 100 == 0) {
+				snapshots.add(t.snapshot());
+				contents.add(expected.toString());
+			}
+		}
+		assertValid(expected.toString(), t);
+		for(int i = 0; i < snapshots.size(); i++) {
+			assertValid(contents.get(i), snapshots.get(i));
+		}
+	}
+
+	@Test
+	public void testSnapshotsSurviveRangeOperations() {
+		Random random = new Random(13);
+		String document = randomString(random, 5000);
+		EditTree t = new EditTree(document);
+		EditTree before = t.snapshot();
+		EditTree removed = t.delete(1000, 2000);
+		EditTree suffix = t.split(1500);
+		// both pieces hold nodes the snapshot shares; editing them must copy too
+		for(int i = 0; i < 500; i++) {
+			removed.delete(random.nextInt(removed.size()));
+			suffix.add('x', random.nextInt(suffix.size() + 1));
+			t.add('y', random.nextInt(t.size() + 1));
+		}
+		EditTree middle = t.snapshot();
+		String middleContents = t.toString();
+		t.concat(removed);
+		t.concat(suffix);
+		for(int i = 0; i < 500; i++) {
+			t.delete(random.nextInt(t.size()));
+		}
+		assertValid(document, before);
+		assertValid(middleContents, middle);
+		assertTrue(t.ranksMatchLeftSubtreeSize());
+		assertTrue(t.balanceCodesAreCorrect());
+	}
+
+	@Test
+	public void testOwnerKeptUnlessNodesAreShared() {
+		Random random = new Random(14);
+		String document = randomString(random, 3000);
+		EditTree t = new EditTree(document);
+		Object owner = t.owner();
+		// without snapshots, moving nodes out doesn't make this tree copy its paths
+		EditTree suffix = t.split(2000);
+		EditTree removed = t.delete(500, 500);
+		assertSame(owner, t.owner());
+		t.concat(removed);
+		assertSame(owner, t.owner());
+
+		// a snapshot of a piece shares nodes stamped with this tree's owner, so
+		// taking them back in has to give it a new one
+		EditTree piece = new EditTree();
+		piece.concat(suffix);
+		EditTree pieceSnapshot = piece.snapshot();
+		String pieceContents = piece.toString();
+		EditTree other = new EditTree();
+		other.concat(piece); // passed on through a tree that was never snapshotted
+		t.concat(other);
+		assertNotSame(owner, t.owner());
+		StringBuilder expected = new StringBuilder(t.toString());
+		for(int i = 0; i < 2000; i++) {
+			int pos = random.nextInt(expected.length());
+			assertEquals(expected.charAt(pos), t.delete(pos));
+			expected.deleteCharAt(pos);
+			t.add('z', pos);
+			expected.insert(pos, 'z');
+		}
+		assertValid(expected.toString(), t);
+		assertValid(pieceContents, pieceSnapshot);
+		assertEquals(document.substring(2000), pieceContents);
+	}
+
+}
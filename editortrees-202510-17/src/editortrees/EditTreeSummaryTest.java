@@ -0,0 +1,187 @@
+package editortrees;
+
+import static editortrees.TestUtil.randomLines;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test cases for the summaries an EditTree keeps per subtree.
+ */
+public class EditTreeSummaryTest {
+
+	// the text itself: not commutative, so it shows any combine out of order
+	private static final Summary<String> TEXT = new Summary<String>() {
+		@Override
+		public String identity() {
+			return "";
+		}
+
+		@Override
+		public String of(char ch) {
+			return String.valueOf(ch);
+		}
+
+		@Override
+		public String combine(String left, String right) {
+			return left + right;
+		}
+	};
+
+	private static final Summary<Integer> NEWLINES = new Summary<Integer>() {
+		@Override
+		public Integer identity() {
+			return 0;
+		}
+
+		@Override
+		public Integer of(char ch) {
+			return ch == '\n' ? 1 : 0;
+		}
+
+		@Override
+		public Integer combine(Integer left, Integer right) {
+			return left + right;
+		}
+	};
+
+	private static String checkSummaries(Node n) {
+		if(n == Node.NULL_NODE) {
+			return "";
+		}
+		String s = checkSummaries(n.left) + n.data + checkSummaries(n.right);
+		assertEquals(s, ((SummarizedNode) n).values[0]);
+		assertEquals(((CountedNode) n).newlines, ((SummarizedNode) n).values[1]);
+		return s;
+	}
+
+	private static void assertSummaries(String expected, EditTree t, Random random) {
+		assertEquals(expected, t.toString());
+		assertEquals(expected, checkSummaries(t.root));
+		for(int i = 0; i < 20; i++) {
+			int pos = random.nextInt(expected.length() + 1);
+			assertEquals(expected.substring(0, pos), t.prefixSummary(TEXT, pos));
+		}
+		for(int line = 1; line < t.lineCount(); line++) {
+			int k = line;
+			assertEquals(t.offsetOfLine(line), t.seekBy(NEWLINES, c -> c >= k));
+		}
+		assertEquals(-1, t.seekBy(NEWLINES, c -> c >= t.lineCount()));
+		assertEquals(0, t.seekBy(NEWLINES, c -> c >= 0));
+	}
+
+	private static EditTree newTree(String s) {
+		return new EditTree(s, Arrays.asList(TEXT, NEWLINES));
+	}
+
+	@Test
+	public void testSmallTrees() {
+		Random random = new Random(80);
+		assertSummaries("", newTree(""), random);
+		assertSummaries("a\nb", newTree("a\nb"), random);
+		EditTree t = newTree("");
+		t.add('x', 0);
+		assertSummaries("x", t, random);
+		assertEquals("x", t.prefixSummary(TEXT, 1));
+		assertEquals(1, t.seekBy(TEXT, s -> s.length() == 1));
+	}
+
+	@Test
+	public void testEditsAndRotations() {
+		Random random = new Random(81);
+		EditTree t = newTree(randomLines(random, 500));
+		StringBuilder expected = new StringBuilder(t.toString());
+		for(int i = 0; i < 2000; i++) {
+			int op = random.nextInt(10);
+			if(op < 5) {
+				int pos = random.nextInt(expected.length() + 1);
+				char c = random.nextInt(4) == 0 ? '\n' : 'x';
+				t.add(c, pos);
+				expected.insert(pos, c);
+			}
+			else if(op < 8 && expected.length() > 0) {
+				int pos = random.nextInt(expected.length());
+				t.delete(pos);
+				expected.deleteCharAt(pos);
+			}
+			else if(op == 8) {
+				int pos = random.nextInt(expected.length() + 1);
+				String s = randomLines(random, random.nextInt(50));
+				t.add(s, pos);
+				expected.insert(pos, s);
+			}
+			else {
+				int pos = random.nextInt(expected.length() + 1);
+				int length = random.nextInt(Math.min(50, expected.length() - pos) + 1);
+				t.delete(pos, length);
+				expected.delete(pos, pos + length);
+			}
+			if(i % 100 == 0) {
+				assertSummaries(expected.toString(), t, random);
+			}
+		}
+		assertSummaries(expected.toString(), t, random);
+		assertTrue(t.ranksMatchLeftSubtreeSize());
+		assertTrue(t.balanceCodesAreCorrect());
+	}
+
+	@Test
+	public void testRangeOperationsAndSnapshots() {
+		Random random = new Random(82);
+		String document = randomLines(random, 3000);
+		EditTree t = newTree(document);
+		EditTree snapshot = t.snapshot();
+		EditTree copy = new EditTree(t);
+		for(int i = 0; i < 30; i++) {
+			int pos = random.nextInt(t.size() + 1);
+			EditTree suffix = t.split(pos);
+			assertSummaries(document.substring(pos), suffix, random);
+			t.add('\n', pos);
+			t.delete(pos);
+			t.concat(suffix);
+		}
+		EditTree removed = t.delete(1000, 500);
+		assertSummaries(document.substring(1000, 1500), removed, random);
+		assertSummaries(document.substring(0, 1000) + document.substring(1500), t, random);
+		assertSummaries(document, snapshot, random);
+		assertSummaries(document, copy, random);
+	}
+
+	@Test
+	public void testSummaryMustBeKept() {
+		EditTree t = new EditTree("abc");
+		try {
+			t.prefixSummary(TEXT, 1);
+			fail("Did not throw IllegalArgumentException");
+		} catch(IllegalArgumentException e) {
+			// success
+		}
+		try {
+			t.seekBy(NEWLINES, c -> c > 0);
+			fail("Did not throw IllegalArgumentException");
+		} catch(IllegalArgumentException e) {
+			// success
+		}
+		try {
+			newTree("def").concat(t);
+			fail("Did not throw IllegalArgumentException");
+		} catch(IllegalArgumentException e) {
+			// success
+		}
+		try {
+			newTree("def").prefixSummary(TEXT, 4);
+			fail("Did not throw IndexOutOfBoundsException");
+		} catch(IndexOutOfBoundsException e) {
+			// success
+		}
+		EditTree u = newTree("def");
+		u.concat(newTree("ghi"));
+		assertSummaries("defghi", u, new Random(83));
+	}
+
+}
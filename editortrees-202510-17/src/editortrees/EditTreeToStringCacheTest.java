@@ -0,0 +1,140 @@
+package editortrees;
+
+import static editortrees.TestUtil.randomString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test cases for toString() with its cache turned on: it must always agree
+ * with a plain in-order traversal, and stay within its limit.
+ */
+public class EditTreeToStringCacheTest {
+
+	private static String slowToString(EditTree t) {
+		StringBuilder result = new StringBuilder();
+		t.root.InOrderToString(result);
+		return result.toString();
+	}
+
+	private static long cachedChars(Node n) {
+		if(n == Node.NULL_NODE) {
+			return 0;
+		}
+		return (n.text == null ? 0 : n.text.length()) + cachedChars(n.left) + cachedChars(n.right);
+	}
+
+	private static void randomEdit(Random random, EditTree t) {
+		int op = random.nextInt(10);
+		if(op < 5) {
+			t.add((char) ('a' + random.nextInt(26)), random.nextInt(t.size() + 1));
+		}
+		else if(op < 9 && t.size() > 0) {
+			t.delete(random.nextInt(t.size()));
+		}
+		else if(op == 9) {
+			t.add(randomString(random, random.nextInt(3000)), random.nextInt(t.size() + 1));
+		}
+	}
+
+	@Test
+	public void testCachedToStringAfterEdits() {
+		Random random = new Random(21);
+		EditTree t = new EditTree(randomString(random, 20000));
+		t.setToStringCacheLimit(Long.MAX_VALUE);
+		for(int i = 0; i < 2000; i++) {
+			randomEdit(random, t);
+			assertEquals(slowToString(t), t.toString());
+		}
+		String s = t.toString();
+		assertTrue(s == t.toString());
+	}
+
+	@Test
+	public void testCacheLimit() {
+		Random random = new Random(22);
+		EditTree t = new EditTree(randomString(random, 50000));
+		for(long limit : new long[] { 1, 2000, 30000, 70000, 100000, 0, 60000 }) {
+			t.setToStringCacheLimit(limit);
+			for(int i = 0; i < 200; i++) {
+				randomEdit(random, t);
+				assertEquals(slowToString(t), t.toString());
+				assertTrue(cachedChars(t.root) <= limit);
+			}
+		}
+	}
+
+	@Test
+	public void testCacheWithSnapshotsAndRangeOperations() {
+		Random random = new Random(23);
+		String document = randomString(random, 30000);
+		EditTree t = new EditTree(document);
+		t.setToStringCacheLimit(Long.MAX_VALUE);
+		assertEquals(document, t.toString());
+		EditTree snapshot = t.snapshot();
+		for(int i = 0; i < 300; i++) {
+			randomEdit(random, t);
+			if(i % 10 == 0) {
+				assertEquals(slowToString(t), t.toString());
+			}
+		}
+		EditTree removed = t.delete(t.size() / 3, t.size() / 3);
+		EditTree suffix = t.split(t.size() / 2);
+		removed.setToStringCacheLimit(Long.MAX_VALUE);
+		assertEquals(slowToString(t), t.toString());
+		assertEquals(slowToString(removed), removed.toString());
+		assertEquals(slowToString(suffix), suffix.toString());
+		t.concat(suffix);
+		t.concat(removed);
+		assertEquals(slowToString(t), t.toString());
+		assertEquals(document, snapshot.toString());
+		assertTrue(t.ranksMatchLeftSubtreeSize());
+		assertTrue(t.balanceCodesAreCorrect());
+	}
+
+	@Test
+	public void testSnapshotsDontWriteSharedNodes() {
+		Random random = new Random(25);
+		String document = randomString(random, 20000);
+		EditTree t = new EditTree(document);
+		t.setToStringCacheLimit(Long.MAX_VALUE);
+		EditTree snapshot = t.snapshot();
+		// nothing was cached before the snapshot, and it may not cache anything now
+		assertEquals(document, snapshot.toString());
+		assertEquals(0, cachedChars(snapshot.root));
+		// it reads the texts the tree caches, but never drops them
+		assertEquals(document, t.toString());
+		long cached = cachedChars(snapshot.root);
+		assertTrue(cached > 0);
+		snapshot.setToStringCacheLimit(1);
+		assertEquals(document, snapshot.toString());
+		assertEquals(cached, cachedChars(snapshot.root));
+		for(int i = 0; i < 100; i++) {
+			randomEdit(random, t);
+			assertEquals(slowToString(t), t.toString());
+		}
+		assertEquals(document, snapshot.toString());
+	}
+
+	@Test
+	public void testRepeatedToStringBetweenSmallEdits() {
+		Random random = new Random(24);
+		String document = randomString(random, 50 * Node.CACHED_CHUNK);
+		EditTree cached = new EditTree(document);
+		EditTree uncached = new EditTree(document);
+		cached.setToStringCacheLimit(4L * document.length());
+		cached.toString();
+		for(int i = 0; i < 50; i++) {
+			int pos = random.nextInt(cached.size() + 1);
+			cached.add('x', pos);
+			uncached.add('x', pos);
+			assertEquals(uncached.toString(), cached.toString());
+			// the whole string at the root, and nearly all of it again in chunks
+			assertTrue(cachedChars(cached.root) >= 2L * cached.size() - Node.CACHED_CHUNK);
+		}
+	}
+
+}
@@ -0,0 +1,167 @@
+package editortrees;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test cases for converting between char positions and UTF-8 byte offsets.
+ */
+public class EditTreeUtf8Test {
+
+	// one to four bytes per code point, and unpaired surrogates
+	private static String randomText(Random random, int length) {
+		StringBuilder result = new StringBuilder(length);
+		while(result.length() < length) {
+			int kind = random.nextInt(8);
+			if(kind == 0) {
+				result.appendCodePoint(0x1F600 + random.nextInt(50));
+			}
+			else if(kind == 1) {
+				result.append((char) (0xD800 + random.nextInt(0x800)));
+			}
+			else if(kind == 2) {
+				result.append((char) (0xE0 + random.nextInt(0x100)));
+			}
+			else if(kind == 3) {
+				result.append((char) (0x3040 + random.nextInt(0x60)));
+			}
+			else {
+				result.append((char) ('a' + random.nextInt(26)));
+			}
+		}
+		return result.toString();
+	}
+
+	private static int utf8(String s) {
+		return s.getBytes(StandardCharsets.UTF_8).length;
+	}
+
+	private static String checkBytes(Node n) {
+		if(n == Node.NULL_NODE) {
+			return "";
+		}
+		String s = checkBytes(n.left) + n.data + checkBytes(n.right);
+		assertEquals(utf8(s), ((CountedNode) n).utf8Bytes);
+		return s;
+	}
+
+	private static void assertOffsets(String expected, EditTree t) {
+		assertEquals(expected, t.toString());
+		checkBytes(t.root);
+		assertEquals(utf8(expected), t.utf8Length());
+		// the byte offset where each char starts, or where the code point after it does
+		long[] offsets = new long[expected.length() + 1];
+		for(int pos = 0; pos < expected.length(); pos = expected.offsetByCodePoints(pos, 1)) {
+			int end = expected.offsetByCodePoints(pos, 1);
+			long next = offsets[pos] + utf8(expected.substring(pos, end));
+			for(int i = pos + 1; i <= end; i++) {
+				offsets[i] = next;
+			}
+		}
+		int pos = 0;
+		for(int i = 0; i <= expected.length(); i++) {
+			assertEquals(offsets[i], t.byteOffsetOf(i));
+		}
+		for(long b = 0; b <= offsets[expected.length()]; b++) {
+			while(pos < expected.length() && expected.offsetByCodePoints(pos, 1) <= expected.length()
+					&& offsets[expected.offsetByCodePoints(pos, 1)] <= b) {
+				pos = expected.offsetByCodePoints(pos, 1);
+			}
+			assertEquals(pos, t.charPosOfByteOffset(b));
+		}
+	}
+
+	@Test
+	public void testSmallTrees() {
+		assertOffsets("", new EditTree(true));
+		assertOffsets("a\u00E9\u65E5\uD83D\uDE00", new EditTree("a\u00E9\u65E5\uD83D\uDE00", true));
+		assertOffsets("\uDE00\uD83D", new EditTree("\uDE00\uD83D", true));
+		assertOffsets("\uD83D\uD83D\uDE00\uDE00", new EditTree("\uD83D\uD83D\uDE00\uDE00", true));
+		EditTree t = new EditTree("x\uD83D\uDE00y", true);
+		assertEquals(5, t.byteOffsetOf(2)); // between the halves: past the pair
+		assertEquals(1, t.charPosOfByteOffset(3)); // inside the pair: its start
+	}
+
+	@Test
+	public void testCharEdits() {
+		Random random = new Random(70);
+		EditTree t = new EditTree(true);
+		StringBuilder expected = new StringBuilder();
+		char[] chars = { 'a', '\u00E9', '\u65E5', '\uD83D', '\uDE00' };
+		for(int i = 0; i < 3000; i++) {
+			if(expected.length() > 0 && random.nextInt(3) == 0) {
+				int pos = random.nextInt(expected.length());
+				t.delete(pos);
+				expected.deleteCharAt(pos);
+			}
+			else {
+				int pos = random.nextInt(expected.length() + 1);
+				char c = chars[random.nextInt(chars.length)];
+				t.add(c, pos);
+				expected.insert(pos, c);
+			}
+			if(i % 200 == 0) {
+				assertOffsets(expected.toString(), t);
+			}
+		}
+		assertOffsets(expected.toString(), t);
+	}
+
+	@Test
+	public void testBulkEdits() {
+		Random random = new Random(71);
+		String document = randomText(random, 4000);
+		EditTree t = new EditTree(document, true);
+		EditTree snapshot = t.snapshot();
+		StringBuilder expected = new StringBuilder(document);
+		for(int i = 0; i < 300; i++) {
+			int pos = random.nextInt(expected.length() + 1);
+			if(random.nextBoolean()) {
+				String s = randomText(random, random.nextInt(100));
+				t.add(s, pos);
+				expected.insert(pos, s);
+			}
+			else {
+				int length = random.nextInt(Math.min(100, expected.length() - pos) + 1);
+				t.delete(pos, length);
+				expected.delete(pos, pos + length);
+			}
+			if(i % 50 == 0) {
+				int at = random.nextInt(expected.length() + 1);
+				EditTree suffix = t.split(at);
+				assertOffsets(expected.substring(at), suffix);
+				t.concat(suffix);
+			}
+		}
+		assertOffsets(expected.toString(), t);
+		assertOffsets(document, snapshot);
+	}
+
+	@Test
+	public void testInvalidArguments() {
+		EditTree t = new EditTree("a\uD83D\uDE00", true);
+		for(int pos : new int[] { -1, 4 }) {
+			try {
+				t.byteOffsetOf(pos);
+				fail("Did not throw IndexOutOfBoundsException");
+			} catch(IndexOutOfBoundsException e) {
+				// success
+			}
+		}
+		for(long b : new long[] { -1, 6 }) {
+			try {
+				t.charPosOfByteOffset(b);
+				fail("Did not throw IndexOutOfBoundsException");
+			} catch(IndexOutOfBoundsException e) {
+				// success
+			}
+		}
+		assertEquals(3, t.charPosOfByteOffset(5));
+	}
+
+}
@@ -0,0 +1,103 @@
+package editortrees;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test cases for writing an EditTree out with writeTo().
+ */
+public class EditTreeWriteTest {
+
+	// letters, with surrogate pairs, lone surrogates and non-Latin text mixed in
+	private static String randomText(Random random, int length) {
+		StringBuilder result = new StringBuilder(length);
+		while(result.length() < length) {
+			int kind = random.nextInt(20);
+			if(kind == 0) {
+				result.appendCodePoint(0x1F600 + random.nextInt(50));
+			}
+			else if(kind == 1) {
+				result.append((char) (0xD800 + random.nextInt(0x800)));
+			}
+			else if(kind == 2) {
+				result.append((char) (0x3040 + random.nextInt(0x60)));
+			}
+			else {
+				result.append((char) ('a' + random.nextInt(26)));
+			}
+		}
+		return result.toString();
+	}
+
+	private static byte[] written(EditTree t, Charset charset) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		t.writeTo(Channels.newChannel(bytes), charset);
+		return bytes.toByteArray();
+	}
+
+	@Test
+	public void testWriteToAppendable() throws IOException {
+		Random random = new Random(30);
+		for(int length : new int[] { 0, 1, 100, EditTree.WRITE_BUFFER, 3 * EditTree.WRITE_BUFFER + 17 }) {
+			String s = randomText(random, length);
+			EditTree t = new EditTree(s);
+			StringBuilder builder = new StringBuilder();
+			t.writeTo(builder);
+			assertEquals(s, builder.toString());
+			StringWriter writer = new StringWriter();
+			t.writeTo(writer);
+			assertEquals(s, writer.toString());
+		}
+	}
+
+	@Test
+	public void testWriteToChannelMatchesGetBytes() throws IOException {
+		Random random = new Random(31);
+		Charset[] charsets = { StandardCharsets.UTF_8, StandardCharsets.UTF_16, StandardCharsets.ISO_8859_1,
+				StandardCharsets.US_ASCII };
+		for(int length : new int[] { 0, 1, 5000, EditTree.WRITE_BUFFER - 1, EditTree.WRITE_BUFFER + 1, 40000 }) {
+			String s = randomText(random, length);
+			EditTree t = new EditTree(s);
+			for(Charset charset : charsets) {
+				assertArrayEquals(charset.name(), s.getBytes(charset), written(t, charset));
+			}
+		}
+	}
+
+	@Test
+	public void testSurrogatePairAcrossBuffers() throws IOException {
+		// a pair split by every buffer boundary, and a lone high surrogate at the end
+		StringBuilder s = new StringBuilder();
+		for(int i = 0; i < 4; i++) {
+			while(s.length() % EditTree.WRITE_BUFFER != EditTree.WRITE_BUFFER - 1) {
+				s.append('x');
+			}
+			s.appendCodePoint(0x1F600);
+		}
+		s.append('\uD83D');
+		EditTree t = new EditTree(s.toString());
+		assertArrayEquals(s.toString().getBytes(StandardCharsets.UTF_8), written(t, StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testWriteAfterEdits() throws IOException {
+		Random random = new Random(32);
+		EditTree t = new EditTree();
+		for(int i = 0; i < 30000; i++) {
+			t.add((char) ('a' + random.nextInt(26)), random.nextInt(t.size() + 1));
+		}
+		t.delete(100, 5000);
+		assertArrayEquals(t.toString().getBytes(StandardCharsets.UTF_8), written(t, StandardCharsets.UTF_8));
+	}
+
+}
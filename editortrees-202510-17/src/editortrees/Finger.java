@@ -0,0 +1,75 @@
+package editortrees;
+
+import java.util.Arrays;
+
+/**
+ * A finger into an EditTree: the path from the root down to the node read
+ * last, with the range of positions each node on it covers. A read near the
+ * previous one only climbs to the lowest node whose range holds the new
+ * position and descends from there, instead of starting over at the root.
+ * For a read d positions away that is typically O(log d) steps, and reading
+ * the whole tree in order this way is O(n) in total.
+ *
+ * The ranks a finger relies on change with every edit, so the tree sets its
+ * finger back to the root after changing (see EditTree.get()). A finger only
+ * speeds up reads, then: edits don't use it, and the read after an edit costs
+ * the usual O(log n).
+ */
+public class Finger {
+	private static final int INITIAL_CAPACITY = 48;
+
+	private Node[] nodes = new Node[INITIAL_CAPACITY];
+	private int[] start = new int[INITIAL_CAPACITY]; // first position under nodes[i]
+	private int[] end = new int[INITIAL_CAPACITY]; // one past the last position under nodes[i]
+	private int depth;
+
+	/**
+	 * Puts the finger on the root of a tree of the given size.
+	 */
+	void reset(Node root, int size) {
+		depth = 0;
+		push(root, 0, size);
+	}
+
+	/**
+	 * Moves the finger to the node at pos, which must be inside the tree.
+	 *
+	 * @return the node at pos
+	 */
+	Node seek(int pos) {
+		// the root covers the whole tree, so this stops there at the latest
+		while(pos < start[depth - 1] || pos >= end[depth - 1]) {
+			depth--;
+		}
+		Node curr = nodes[depth - 1];
+		int lo = start[depth - 1];
+		int hi = end[depth - 1];
+		while(true) {
+			int at = lo + curr.rank;
+			if(pos == at) {
+				return curr;
+			}
+			if(pos < at) {
+				hi = at;
+				curr = curr.left;
+			}
+			else {
+				lo = at + 1;
+				curr = curr.right;
+			}
+			push(curr, lo, hi);
+		}
+	}
+
+	private void push(Node node, int lo, int hi) {
+		if(depth == nodes.length) {
+			nodes = Arrays.copyOf(nodes, depth * 2);
+			start = Arrays.copyOf(start, depth * 2);
+			end = Arrays.copyOf(end, depth * 2);
+		}
+		nodes[depth] = node;
+		start[depth] = lo;
+		end[depth] = hi;
+		depth++;
+	}
+}
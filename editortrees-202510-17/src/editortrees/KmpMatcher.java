@@ -0,0 +1,81 @@
+package editortrees;
+
+/**
+ * Finds a needle in characters fed to it one at a time, with the
+ * Knuth-Morris-Pratt algorithm: O(1) amortized per character, and memory for
+ * nothing but the needle and its failure table, so a search can stream through
+ * a tree instead of copying it out (see Node.feedForward()). To search
+ * backwards, make the matcher with reversed set and feed it the characters
+ * from the end.
+ */
+class KmpMatcher {
+	private final char[] needle;
+	// border[i] is the length of the longest proper prefix of needle[0..i]
+	// that is also a suffix of it
+	private final int[] border;
+	int state; // number of needle characters matched by what was fed last
+
+	KmpMatcher(CharSequence needle, boolean reversed) {
+		int length = needle.length();
+		this.needle = new char[length];
+		for(int i = 0; i < length; i++) {
+			this.needle[i] = needle.charAt(reversed ? length - 1 - i : i);
+		}
+		border = new int[length];
+		int k = 0;
+		for(int i = 1; i < length; i++) {
+			while(k > 0 && this.needle[i] != this.needle[k]) {
+				k = border[k - 1];
+			}
+			if(this.needle[i] == this.needle[k]) {
+				k++;
+			}
+			border[i] = k;
+		}
+	}
+
+	/**
+	 * Makes a matcher for the same needle as other that has matched nothing
+	 * yet. The needle and its failure table are shared, not copied, so
+	 * parallel searches (see SearchTask) each get a state of their own for
+	 * O(1).
+	 */
+	KmpMatcher(KmpMatcher other) {
+		needle = other.needle;
+		border = other.border;
+	}
+
+	/**
+	 * @return the bit (see Node.charBit()) of the character a match has to
+	 *         start with
+	 */
+	long firstBit() {
+		return Node.charBit(needle[0]);
+	}
+
+	/**
+	 * @return the length of the needle
+	 */
+	int length() {
+		return needle.length;
+	}
+
+	/**
+	 * Feeds the next character to the matcher.
+	 * 
+	 * @return true if it completes a match of the needle
+	 */
+	boolean feed(char ch) {
+		while(state > 0 && needle[state] != ch) {
+			state = border[state - 1];
+		}
+		if(needle[state] == ch) {
+			state++;
+		}
+		if(state == needle.length) {
+			state = border[state - 1]; // ready for an overlapping match
+			return true;
+		}
+		return false;
+	}
+}
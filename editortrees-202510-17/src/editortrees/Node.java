@@ -5,7 +5,8 @@ import java.util.ArrayList;
 
 /**
  * A node in a height-balanced binary tree with rank. Except for the NULL_NODE,
- * one node cannot belong to two different trees.
+ * one node cannot belong to two different trees, unless one is a snapshot of
+ * the other (see EditTree.snapshot()), and then neither changes it.
  * 
  * @author <<Rohan Malipeddi and Jimin Park>> 
  */
@@ -37,7 +38,8 @@ public class Node   {
 	Node left, right; // subtrees
 	int rank; // inorder position of this node within its own subtree.
 	Code balance;
-	public DisplayableNodeWrapper displayableNodeWrapper;
+	Object owner; // only the tree with this owner may change the node, see BContainer.own()
+	String text; // the characters of this subtree, if EditTree.toString() cached them
 
 	// Feel free to add other fields that you find useful.
 	// You probably want a NULL_NODE, but you can comment it out if you decide
@@ -46,6 +48,8 @@ public class Node   {
 	// but they could be anything since you shouldn't ever actually refer to them in
 	// your code.
 	static final Node NULL_NODE = new Node('\0', null, null);
+	// largest subtree whose characters EditTree.toString() caches in one piece
+	static final int CACHED_CHUNK = 1024;
 	// Node parent; You may want parent, but think twice: keeping it up-to-date
 	// takes effort too, maybe more than it's worth.
 
@@ -55,7 +59,6 @@ public class Node   {
 		this.right = right;
 		rank = 0;	// rank is 0 bc of new node
 		balance = Code.SAME;
-		displayableNodeWrapper = new DisplayableNodeWrapper(this);
 	}
 
 	public Node(char data) {
@@ -69,7 +72,32 @@ public class Node   {
 		this.right = right;
 		this.rank = rank;	// rank is 0 bc of new node
 		this.balance = balance;
-		displayableNodeWrapper = new DisplayableNodeWrapper(this);
+	}
+
+	/**
+	 * @return a node of the same class with the same fields, except for the
+	 *         owner and the cached text, for BContainer.own()
+	 */
+	Node copy() {
+		return new Node(data, left, right, rank, balance);
+	}
+
+	/**
+	 * Copies what pull() computes from from, a node with the same subtree.
+	 * A plain node computes nothing.
+	 */
+	void copyCounts(Node from) {
+	}
+
+	/**
+	 * Recomputes the counts this node keeps for its whole subtree from its
+	 * children's. Every node whose subtree changes has to be pulled, bottom-up,
+	 * once its children are up to date: the nodes on the path of an add or
+	 * delete, and the nodes moved by a rotation or a join. A plain node
+	 * keeps no counts, so only subclasses that do, like CountedNode, have
+	 * anything to recompute.
+	 */
+	void pull() {
 	}
 
 	// Provided to you to enable testing, please don't change.
@@ -95,12 +123,82 @@ public class Node   {
 		right.InOrderToString(result);
 	}
 	
+	/**
+	 * Appends the characters of this subtree, which holds size characters, to
+	 * result, like InOrderToString, but using the texts cached in nodes by
+	 * earlier calls. A subtree of at most CACHED_CHUNK characters that has no
+	 * text yet gets one, as long as budget allows. Texts that would go over
+	 * the budget are dropped, and so are the ones below a node that gets a
+	 * text, since that one covers them.
+	 * 
+	 * A read-only budget, a snapshot's, only reads texts: its nodes are shared
+	 * with the tree it was taken from. Each text is read once, so if that tree
+	 * caches or drops one at the same time on another thread, this sees
+	 * either the whole String or none.
+	 */
+	void appendCached(StringBuilder result, int size, CacheBudget budget) {
+		if(this == NULL_NODE) {
+			return;
+		}
+		boolean fits = budget.used + size <= budget.limit;
+		boolean writable = !budget.readOnly;
+		String cached = text;
+		if(cached != null) {
+			if(fits) {
+				budget.used += size;
+				result.append(cached);
+				return;
+			}
+			if(writable) {
+				text = null; // over the budget
+			}
+		}
+		if(size <= CACHED_CHUNK && fits && writable) {
+			int start = result.length();
+			appendChunk(result);
+			text = result.substring(start);
+			budget.used += size;
+			return;
+		}
+		left.appendCached(result, rank, budget);
+		result.append(data);
+		right.appendCached(result, size - rank - 1, budget);
+	}
+
+	// like InOrderToString, but takes over the texts cached below
+	private void appendChunk(StringBuilder result) {
+		if(this == NULL_NODE) {
+			return;
+		}
+		String cached = text;
+		if(cached != null) {
+			result.append(cached);
+			text = null;
+			return;
+		}
+		left.appendChunk(result);
+		result.append(data);
+		right.appendChunk(result);
+	}
+
+	/**
+	 * Drops every text cached in this subtree.
+	 */
+	void clearCached() {
+		if(this == NULL_NODE) {
+			return;
+		}
+		text = null;
+		left.clearCached();
+		right.clearCached();
+	}
+
 	/**
 	 * Single left rotation helper method
 	 * @param curr
 	 * @return new root node
 	 */
-	public Node singleLeft(Node curr) {
+	public static Node singleLeft(Node curr) {
 		Node newRoot = curr.right;
 		Node leftOfRoot = newRoot.left;
 		newRoot.left = curr;
@@ -111,6 +209,8 @@ public class Node   {
 		newRoot.balance = Code.SAME; // it is always the the same no matter what
 		
 		newRoot.rank = newRoot.rank + curr.rank + 1;
+		curr.pull();
+		newRoot.pull();
 		
 		return newRoot;
 	}
@@ -120,7 +220,7 @@ public class Node   {
 	 * @param curr
 	 * @return new root node
 	 */
-	public Node singleRight(Node curr) {
+	public static Node singleRight(Node curr) {
 		Node newRoot = curr.left;
 		Node rightOfRoot = newRoot.right; // save the right value
 		newRoot.right = curr;
@@ -131,27 +231,55 @@ public class Node   {
 		newRoot.balance = Code.SAME;
 		
 		curr.rank = curr.rank - newRoot.rank - 1;
+		curr.pull();
+		newRoot.pull();
 		
 		return newRoot;
 	}
 	
 	
-	public Node add(char ch, int pos, BContainer b) {
-		if(this == NULL_NODE) {
-			return new Node(ch);
-		}
-		if(pos <= rank) { 		// add to left
-			rank++;				// update rank
-			left = left.add(ch, pos, b);
-			
-			return getLeftBalanced(b);
+	/**
+	 * Adds ch at pos in the tree rooted at root. This is iterative: it descends
+	 * once, updating ranks and recording the path, then retraces the path
+	 * bottom-up fixing balance codes, and stops at the first subtree whose
+	 * height didn't change (after a rotation, at the latest).
+	 * 
+	 * @return the new root of the tree
+	 */
+	static Node add(Node root, char ch, int pos, PathStack path, BContainer b) {
+		path.clear();
+		Node curr = root;
+		while(curr != NULL_NODE) {
+			curr = path.own(curr, b);	// copy it if a snapshot shares it
+			if(pos <= curr.rank) { 		// add to left
+				curr.rank++;			// update rank
+				path.push(curr, true);
+				curr = curr.left;
+			}
+			else {	// add to right
+				pos = pos - (curr.rank + 1);	// update position 
+				path.push(curr, false);
+				curr = curr.right;
+			}
 		}
-		else {	// add to right
-			pos = pos - (rank + 1);	// update position 
-			right = right.add(ch, pos, b);
-			
-			return getRightBalanced(b);
+		Node child = b.newNode(ch);
+		for(int i = path.depth - 1; i >= 0; i--) {
+			Node parent = path.nodes[i];
+			if(path.wentLeft[i]) {
+				parent.left = child;
+				parent.pull();
+				child = parent.getLeftBalanced(b);
+			}
+			else {
+				parent.right = child;
+				parent.pull();
+				child = parent.getRightBalanced(b);
+			}
+			if(b.isBalanced) {
+				return path.relinkAndPull(i, child);
+			}
 		}
+		return child;
 	}
 	
 	private Node getRightBalanced(BContainer b) {
@@ -249,16 +377,109 @@ public class Node   {
 	}
 
 	public char get(int pos) {		// same as add at pos
-		if(pos < rank) {
-			return left.get(pos);
+		Node curr = this;
+		while(pos != curr.rank) {
+			if(pos < curr.rank) {
+				curr = curr.left;
+			}
+			else {
+				pos = pos - (curr.rank+1);
+				curr = curr.right;
+			}
 		}
-		else if(pos > rank) {
-			pos = pos - (rank+1);
-			return right.get(pos);
+		return curr.data;
+	}
+
+	/**
+	 * Like get(), but returns the node at pos, leaving its ancestors on path so
+	 * the neighbouring nodes can be reached with path.successor() and
+	 * path.predecessor().
+	 */
+	static Node find(Node root, int pos, PathStack path) {
+		path.clear();
+		Node curr = root;
+		while(pos != curr.rank) {
+			if(pos < curr.rank) {
+				path.push(curr, true);
+				curr = curr.left;
+			}
+			else {
+				pos = pos - (curr.rank+1);
+				path.push(curr, false);
+				curr = curr.right;
+			}
 		}
-		else {
-			return this.data;
+		return curr;
+	}
+
+	/**
+	 * @return the bit for ch in a value of EditTree.CHARACTER_SETS. Many
+	 *         characters share each bit, so a set bit only means that one of
+	 *         them may occur, but a clear one means that none of them does. The multiplier spreads out runs
+	 *         of nearby characters, like letters and digits.
+	 */
+	static long charBit(char ch) {
+		return 1L << ((ch * 0x9E3779B1) >>> 26);
+	}
+
+	/**
+	 * Feeds the characters of the subtree n, whose first character is at
+	 * offset, from position from up to, not including, to, to matcher in
+	 * order, until it completes a match. If the tree keeps
+	 * EditTree.CHARACTER_SETS, as its summary number sets, then while the
+	 * matcher has matched nothing, a subtree that can't hold a character with
+	 * a bit of first (see charBit()) can't start a match, and is skipped
+	 * without being walked; sets is -1 for a tree that doesn't keep them.
+	 * 
+	 * @return the position after the end of the match, or -1 if there is none
+	 */
+	static int feedForward(Node n, int offset, int from, int to, KmpMatcher matcher, int sets, long first) {
+		if(n == NULL_NODE
+				|| (matcher.state == 0 && sets >= 0 && (SummarizedNode.<Long>valueIn(n, sets) & first) == 0)) {
+			return -1;
+		}
+		int at = offset + n.rank;
+		if(from < at) {
+			int end = feedForward(n.left, offset, from, to, matcher, sets, first);
+			if(end >= 0) {
+				return end;
+			}
+		}
+		if(at >= to) {
+			return -1;
+		}
+		if(at >= from && matcher.feed(n.data)) {
+			return at + 1;
+		}
+		return feedForward(n.right, at + 1, from, to, matcher, sets, first);
+	}
+
+	/**
+	 * Like feedForward(), but feeds the characters in reverse order, from
+	 * to - 1 down to from, to a matcher of the reversed needle; first holds
+	 * the bit of the needle's last character.
+	 * 
+	 * @return the position where the match starts, or -1 if there is none
+	 */
+	static int feedBackward(Node n, int offset, int from, int to, KmpMatcher matcher, int sets, long first) {
+		if(n == NULL_NODE
+				|| (matcher.state == 0 && sets >= 0 && (SummarizedNode.<Long>valueIn(n, sets) & first) == 0)) {
+			return -1;
+		}
+		int at = offset + n.rank;
+		if(at + 1 < to) {
+			int start = feedBackward(n.right, at + 1, from, to, matcher, sets, first);
+			if(start >= 0) {
+				return start;
+			}
 		}
+		if(at < from) {
+			return -1;
+		}
+		if(at < to && matcher.feed(n.data)) {
+			return at;
+		}
+		return feedBackward(n.left, offset, from, to, matcher, sets, first);
 	}
 
 	public LeftTreeSize rankMatchesLeftSize() {		// uses a container class and propagates the size and rankChecker
@@ -346,46 +567,66 @@ public class Node   {
 		return Math.max(leftheight, rightheight)+1;
 	}
 
-	public Node delete(int pos, BContainer container) {
-		if(this == NULL_NODE) {
-			return this;
+	/**
+	 * Deletes the character at pos from the tree rooted at root, iteratively
+	 * like add(). The deleted character is left in container.data.
+	 * 
+	 * @return the new root of the tree
+	 */
+	static Node delete(Node root, int pos, PathStack path, BContainer container) {
+		path.clear();
+		Node curr = root;
+		while(pos != curr.rank) {
+			curr = path.own(curr, container);	// copy it if a snapshot shares it
+			if(pos < curr.rank) {
+				curr.rank--;
+				path.push(curr, true);
+				curr = curr.left;
+			}
+			else {
+				pos = pos - (curr.rank+1);
+				path.push(curr, false);
+				curr = curr.right;
+			}
 		}
-		if(pos < rank) {
-			left = left.delete(pos, container);
-			return getDeleteLeftBalance(container);
+		//initiate deletion
+		container.data = curr.data;
+		Node child;
+		if(curr.left == NULL_NODE || curr.right == NULL_NODE) { // deleting node with 0 or 1 child
+			child = curr.left != NULL_NODE ? curr.left : curr.right;
 		}
-		else if(pos > rank) {
-			pos = pos - (rank+1);
-			right = right.delete(pos, container);
-			return getDeleteRightBalance(container);
+		else { // deleting node with 2 children
+			// hibbard deletion with successor: the successor's data moves up
+			// here, and the successor itself is unlinked instead
+			curr = path.own(curr, container);
+			path.push(curr, false);
+			Node successor = curr.right;
+			while(successor.left != NULL_NODE) {
+				successor = path.own(successor, container);
+				successor.rank--;
+				path.push(successor, true);
+				successor = successor.left;
+			}
+			curr.data = successor.data;
+			child = successor.right;
 		}
-		else { //initiate deletion
-			container.data = this.data;
-			int numChildren = getChildren();
-			if(numChildren == 0) { //deleting a leaf node
-				return NULL_NODE;
+		for(int i = path.depth - 1; i >= 0; i--) {
+			Node parent = path.nodes[i];
+			if(path.wentLeft[i]) {
+				parent.left = child;
+				parent.pull();
+				child = parent.getDeleteLeftBalance(container);
 			}
-			else if(numChildren == 1) { // deleting node with 1 child
-				if(this.left != NULL_NODE) {
-					return this.left;
-				}
-				else
-					return this.right;
+			else {
+				parent.right = child;
+				parent.pull();
+				child = parent.getDeleteRightBalance(container);
 			}
-			else if(numChildren == 2){ // deleting node with 2 children
-				// hibbard deletion with successor
-				right = right.delete(0, container);
-				
-				// swap right most data with current data
-				char temp = container.data;
-				container.data = this.data;
-				this.data = temp;
-				
-				return getDeleteRightBalance(container);
+			if(container.isBalanced) {
+				return path.relinkAndPull(i, child);
 			}
-			return this;
 		}
-		
+		return child;
 	}
 	
 	/**
@@ -396,11 +637,11 @@ public class Node   {
 	 * @return
 	 */
 	private Node getDeleteLeftBalance(BContainer container) {
-//		if(container.isBalanced)
-//			return this;
-		this.rank--;
 		if(this.balance == Code.RIGHT && !container.isBalanced) {
+			// the sibling is not on the path, so it may still be shared
+			this.right = container.own(this.right);
 			if(this.right.balance == Code.LEFT) { // do double left rotation
+				this.right.left = container.own(this.right.left);
 				return doubleLeftRotation(container);
 			}
 			else if(this.right.balance == Code.RIGHT) { // do sl rotation
@@ -414,6 +655,7 @@ public class Node   {
 				temp.balance = Code.LEFT;
 				temp.left.balance = Code.RIGHT;
 				container.proceedBCchanges = false;
+				container.isBalanced = true; // the height didn't change, stop retracing
 				return temp;
 			}
 		}
@@ -430,11 +672,10 @@ public class Node   {
 	}
 	
 	private Node getDeleteRightBalance(BContainer container) {
-//		if(container.isBalanced)
-//			return this;
-		
 		if(this.balance == Code.LEFT && !container.isBalanced) {
+			this.left = container.own(this.left);
 			if(this.left.balance == Code.RIGHT) {
+				this.left.right = container.own(this.left.right);
 				return doubleRightRotation(container);
 			}
 			else if(this.left.balance == Code.LEFT) { 	// do sr rotation
@@ -448,6 +689,7 @@ public class Node   {
 				temp.balance = Code.RIGHT;
 				temp.right.balance = Code.LEFT;
 				container.proceedBCchanges = false;
+				container.isBalanced = true; // the height didn't change, stop retracing
 				return temp;
 			}
 		}
@@ -462,18 +704,226 @@ public class Node   {
 		return this;
 	}
 	
-	// helper method for delete
-	private int getChildren() {
-		int result = 0;
-		if(this.hasLeft()) {
-			result++;
+	// The join and split operations below need heights, which nodes don't
+	// store. They are passed down instead: a child's height follows from its
+	// parent's height and balance code.
+	
+	private static int leftHeight(Node n, int height) {
+		return n.balance == Code.RIGHT ? height - 2 : height - 1;
+	}
+	
+	private static int rightHeight(Node n, int height) {
+		return n.balance == Code.LEFT ? height - 2 : height - 1;
+	}
+	
+	private static Code balanceFor(int leftHeight, int rightHeight) {
+		if(leftHeight == rightHeight) {
+			return Code.SAME;
 		}
-		if(this.hasRight()) {
-			result++;
+		return leftHeight > rightHeight ? Code.LEFT : Code.RIGHT;
+	}
+	
+	/**
+	 * @return the height of the tree rooted at n, following the balance codes
+	 *         down the taller side in O(log n). -1 for the NULL_NODE.
+	 */
+	static int height(Node n) {
+		int height = -1;
+		while(n != NULL_NODE) {
+			height++;
+			n = n.balance == Code.LEFT ? n.left : n.right;
 		}
-		return result;
+		return height;
 	}
-
+	
+	/**
+	 * Joins the trees l and r into one tree whose in-order traversal is l, then
+	 * mid, then r, in O(|lHeight - rHeight|) time. The shorter tree is hung
+	 * from the spine of the taller one where the heights match, and the path
+	 * back up is rebalanced. Rotations are counted in b.rotCount, and the
+	 * height of the result is left in b.height. Like every operation that
+	 * changes nodes, it copies the ones the tree doesn't own.
+	 * 
+	 * @return the root of the joined tree
+	 */
+	static Node join(Node l, int lHeight, int lSize, Node mid, Node r, int rHeight, BContainer b) {
+		if(lHeight > rHeight + 1) {
+			return joinRight(l, lHeight, lSize, mid, r, rHeight, b);
+		}
+		if(rHeight > lHeight + 1) {
+			return joinLeft(l, lHeight, lSize, mid, r, rHeight, b);
+		}
+		return link(l, lHeight, lSize, mid, r, rHeight, b);
+	}
+	
+	// makes mid the root of l and r, whose heights differ by at most one
+	private static Node link(Node l, int lHeight, int lSize, Node mid, Node r, int rHeight, BContainer b) {
+		mid.left = l;
+		mid.right = r;
+		mid.rank = lSize;
+		mid.balance = balanceFor(lHeight, rHeight);
+		mid.pull();
+		b.height = Math.max(lHeight, rHeight) + 1;
+		return mid;
+	}
+	
+	// l is the taller tree: walk down its right spine
+	private static Node joinRight(Node t, int tHeight, int tSize, Node mid, Node r, int rHeight, BContainer b) {
+		t = b.own(t);
+		int leftHeight = leftHeight(t, tHeight);
+		int rightHeight = rightHeight(t, tHeight);
+		int rightSize = tSize - t.rank - 1;
+		if(rightHeight <= rHeight + 1) {
+			t.right = link(t.right, rightHeight, rightSize, mid, r, rHeight, b);
+		}
+		else {
+			t.right = joinRight(t.right, rightHeight, rightSize, mid, r, rHeight, b);
+		}
+		t.pull();
+		return rebalanceRight(t, leftHeight, b.height, b);
+	}
+	
+	// r is the taller tree: walk down its left spine
+	private static Node joinLeft(Node l, int lHeight, int lSize, Node mid, Node t, int tHeight, BContainer b) {
+		t = b.own(t);
+		int leftHeight = leftHeight(t, tHeight);
+		int rightHeight = rightHeight(t, tHeight);
+		t.rank += lSize + 1; // all of l and mid end up in t's left subtree
+		if(leftHeight <= lHeight + 1) {
+			t.left = link(l, lHeight, lSize, mid, t.left, leftHeight, b);
+		}
+		else {
+			t.left = joinLeft(l, lHeight, lSize, mid, t.left, leftHeight, b);
+		}
+		t.pull();
+		return rebalanceLeft(t, b.height, rightHeight, b);
+	}
+	
+	// t's right subtree has grown to rightHeight, at most 2 more than its left
+	private static Node rebalanceRight(Node t, int leftHeight, int rightHeight, BContainer b) {
+		if(rightHeight <= leftHeight + 1) {
+			t.balance = balanceFor(leftHeight, rightHeight);
+			b.height = Math.max(leftHeight, rightHeight) + 1;
+			return t;
+		}
+		Node r = t.right;
+		int rlHeight = leftHeight(r, rightHeight);
+		int rrHeight = rightHeight(r, rightHeight);
+		if(rlHeight <= rrHeight) { // single left rotation
+			b.rotCount++;
+			Node newRoot = singleLeft(t);
+			int tHeight = Math.max(leftHeight, rlHeight) + 1;
+			t.balance = balanceFor(leftHeight, rlHeight);
+			newRoot.balance = balanceFor(tHeight, rrHeight);
+			b.height = Math.max(tHeight, rrHeight) + 1;
+			return newRoot;
+		}
+		// double left rotation around r's left child
+		b.rotCount += 2;
+		Node c = b.own(r.left);
+		r.left = c;
+		int clHeight = leftHeight(c, rlHeight);
+		int crHeight = rightHeight(c, rlHeight);
+		t.right = singleRight(r);
+		Node newRoot = singleLeft(t);
+		t.balance = balanceFor(leftHeight, clHeight);
+		r.balance = balanceFor(crHeight, rrHeight);
+		int tHeight = Math.max(leftHeight, clHeight) + 1;
+		int rHeight = Math.max(crHeight, rrHeight) + 1;
+		newRoot.balance = balanceFor(tHeight, rHeight);
+		b.height = Math.max(tHeight, rHeight) + 1;
+		return newRoot;
+	}
+	
+	// t's left subtree has grown to leftHeight, at most 2 more than its right
+	private static Node rebalanceLeft(Node t, int leftHeight, int rightHeight, BContainer b) {
+		if(leftHeight <= rightHeight + 1) {
+			t.balance = balanceFor(leftHeight, rightHeight);
+			b.height = Math.max(leftHeight, rightHeight) + 1;
+			return t;
+		}
+		Node l = t.left;
+		int llHeight = leftHeight(l, leftHeight);
+		int lrHeight = rightHeight(l, leftHeight);
+		if(lrHeight <= llHeight) { // single right rotation
+			b.rotCount++;
+			Node newRoot = singleRight(t);
+			int tHeight = Math.max(lrHeight, rightHeight) + 1;
+			t.balance = balanceFor(lrHeight, rightHeight);
+			newRoot.balance = balanceFor(llHeight, tHeight);
+			b.height = Math.max(llHeight, tHeight) + 1;
+			return newRoot;
+		}
+		// double right rotation around l's right child
+		b.rotCount += 2;
+		Node c = b.own(l.right);
+		l.right = c;
+		int clHeight = leftHeight(c, lrHeight);
+		int crHeight = rightHeight(c, lrHeight);
+		t.left = singleLeft(l);
+		Node newRoot = singleRight(t);
+		l.balance = balanceFor(llHeight, clHeight);
+		t.balance = balanceFor(crHeight, rightHeight);
+		int lHeight = Math.max(llHeight, clHeight) + 1;
+		int tHeight = Math.max(crHeight, rightHeight) + 1;
+		newRoot.balance = balanceFor(lHeight, tHeight);
+		b.height = Math.max(lHeight, tHeight) + 1;
+		return newRoot;
+	}
+	
+	/**
+	 * Splits the tree rooted at n into a tree of its first pos characters and a
+	 * tree of the rest, in O(log n): the nodes on the path to pos are joined
+	 * back onto the pieces hanging off either side of it. The pieces and their
+	 * heights are left in out. The tree rooted at n is used up.
+	 */
+	static void split(Node n, int height, int size, int pos, SplitContainer out, BContainer b) {
+		if(n == NULL_NODE) {
+			out.left = NULL_NODE;
+			out.right = NULL_NODE;
+			out.leftHeight = -1;
+			out.rightHeight = -1;
+			return;
+		}
+		n = b.own(n);
+		Node left = n.left;
+		Node right = n.right;
+		int leftHeight = leftHeight(n, height);
+		int rightHeight = rightHeight(n, height);
+		int leftSize = n.rank;
+		if(pos <= n.rank) {
+			split(left, leftHeight, leftSize, pos, out, b);
+			out.right = join(out.right, out.rightHeight, leftSize - pos, n, right, rightHeight, b);
+			out.rightHeight = b.height;
+		}
+		else {
+			split(right, rightHeight, size - leftSize - 1, pos - leftSize - 1, out, b);
+			out.left = join(left, leftHeight, leftSize, n, out.left, out.leftHeight, b);
+			out.leftHeight = b.height;
+		}
+	}
+	
+	/**
+	 * Joins l and r with no node between them, by splitting the first node off
+	 * r and using it as the middle. The height of the result is left in
+	 * b.height; out is used as scratch space.
+	 * 
+	 * @return the root of the joined tree
+	 */
+	static Node concat(Node l, int lHeight, int lSize, Node r, int rHeight, int rSize, SplitContainer out,
+			BContainer b) {
+		if(r == NULL_NODE) {
+			b.height = lHeight;
+			return l;
+		}
+		if(l == NULL_NODE) {
+			b.height = rHeight;
+			return r;
+		}
+		split(r, rHeight, rSize, 1, out, b);
+		return join(l, lHeight, lSize, out.left, out.right, out.rightHeight, b);
+	}
+	
 	/*
 	 * the nodes being added/traversed are in the range [pos, pos+length-1]
 	 * -> each node has access to pos: starting pos of desired substrin
@@ -0,0 +1,129 @@
+package editortrees;
+
+import java.util.Arrays;
+
+/**
+ * The path from the root down to the node being added or deleted, recorded by
+ * the iterative add and delete in Node so they can retrace it bottom-up
+ * without recursion. Readers keep one too, to step from a node to its
+ * neighbours in amortized O(1) time (see successor()). An AVL tree with n
+ * nodes is at most 1.44 log2(n) high, so the initial capacity covers any tree
+ * whose size fits in an int; the arrays only grow if the balance codes have
+ * been broken.
+ */
+public class PathStack {
+	private static final int INITIAL_CAPACITY = 48;
+
+	Node[] nodes = new Node[INITIAL_CAPACITY];
+	boolean[] wentLeft = new boolean[INITIAL_CAPACITY]; // which child of nodes[i] is next on the path
+	int depth;
+
+	void clear() {
+		depth = 0;
+	}
+
+	void push(Node node, boolean left) {
+		if(depth == nodes.length) {
+			nodes = Arrays.copyOf(nodes, depth * 2);
+			wentLeft = Arrays.copyOf(wentLeft, depth * 2);
+		}
+		nodes[depth] = node;
+		wentLeft[depth] = left;
+		depth++;
+	}
+
+	/**
+	 * Hangs child where nodes[i] used to be, below nodes[i-1], once retracing
+	 * has stopped at depth i. (The child differs from nodes[i] if it was
+	 * rotated.)
+	 * 
+	 * @return the root of the whole tree
+	 */
+	Node relink(int i, Node child) {
+		if(i == 0) {
+			return child;
+		}
+		if(wentLeft[i - 1]) {
+			nodes[i - 1].left = child;
+		}
+		else {
+			nodes[i - 1].right = child;
+		}
+		return nodes[0];
+	}
+
+	/**
+	 * Like relink(), and then pulls (see Node.pull()) the nodes above, whose
+	 * subtrees changed too even though retracing stopped below them.
+	 * 
+	 * @return the root of the whole tree
+	 */
+	Node relinkAndPull(int i, Node child) {
+		Node root = relink(i, child);
+		for(int j = i - 1; j >= 0; j--) {
+			nodes[j].pull();
+		}
+		return root;
+	}
+
+	/**
+	 * Makes sure the tree owns node before it is changed (see BContainer.own()),
+	 * hanging the copy, if one was made, below the top of the path.
+	 * 
+	 * @return node or its copy
+	 */
+	Node own(Node node, BContainer b) {
+		Node owned = b.own(node);
+		if(owned != node) {
+			relink(depth, owned);
+		}
+		return owned;
+	}
+
+	/**
+	 * Steps from node, whose ancestors are on this path, to the next node in
+	 * order, leaving the new node's ancestors on the path. Each step is O(1)
+	 * amortized, since every node is pushed and popped at most once on a walk
+	 * through the whole tree. There must be a next node.
+	 * 
+	 * @return the next node
+	 */
+	Node successor(Node node) {
+		if(node.right != Node.NULL_NODE) {
+			push(node, false);
+			node = node.right;
+			while(node.left != Node.NULL_NODE) {
+				push(node, true);
+				node = node.left;
+			}
+			return node;
+		}
+		// climb until we come up from a left child
+		while(!wentLeft[depth - 1]) {
+			depth--;
+		}
+		return nodes[--depth];
+	}
+
+	/**
+	 * Like successor(), but steps to the previous node in order. There must be
+	 * a previous node.
+	 * 
+	 * @return the previous node
+	 */
+	Node predecessor(Node node) {
+		if(node.left != Node.NULL_NODE) {
+			push(node, true);
+			node = node.left;
+			while(node.right != Node.NULL_NODE) {
+				push(node, false);
+				node = node.right;
+			}
+			return node;
+		}
+		while(wentLeft[depth - 1]) {
+			depth--;
+		}
+		return nodes[--depth];
+	}
+}
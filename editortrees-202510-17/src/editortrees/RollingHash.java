@@ -0,0 +1,128 @@
+package editortrees;
+
+/**
+ * Arithmetic for the polynomial hash behind EditTree.hash(): the hash of
+ * c[0] ... c[k-1] is the sum of (c[i] + 1) * BASE^(k-1-i) modulo the Mersenne
+ * prime 2^61 - 1. Adding 1 keeps a leading '\0' from adding nothing, which
+ * would make "\0a" and "a" collide. The hash of a concatenation follows from the hashes of its parts
+ * and BASE to the length of the right one, which is why the nodes of a tree
+ * that keeps EditTree.HASHES keep that power too (see Value).
+ *
+ * BASE is fixed, so hashes can be stored and compared with hashes of the
+ * same text taken later or by another tree. Two different texts of length k
+ * collide with probability about k / 2^61, unless they were made to.
+ */
+final class RollingHash {
+	static final long MODULUS = (1L << 61) - 1;
+	static final long BASE = 0x1F3D5B79A2C4E687L % MODULUS;
+
+	// the values of EditTree.HASHES
+	static final Summary<Value> SUMMARY = new Summary<Value>() {
+		@Override
+		public Value identity() {
+			return Value.EMPTY;
+		}
+
+		@Override
+		public Value of(char ch) {
+			return new Value(term(ch), BASE);
+		}
+
+		@Override
+		public Value combine(Value left, Value right) {
+			return new Value(concat(left.hash, right.hash, right.power), multiply(left.power, right.power));
+		}
+	};
+
+	/**
+	 * The hash of a piece of text, with BASE to its length for concatenating
+	 * it to others.
+	 */
+	static final class Value {
+		static final Value EMPTY = new Value(0, 1);
+
+		final long hash;
+		final long power;
+
+		Value(long hash, long power) {
+			this.hash = hash;
+			this.power = power;
+		}
+	}
+
+	private RollingHash() {
+	}
+
+	/**
+	 * @return a * b modulo MODULUS, for a and b less than MODULUS
+	 */
+	static long multiply(long a, long b) {
+		long high = Math.multiplyHigh(a, b);
+		long low = a * b;
+		// the 122-bit product is split at bit 61, and 2^61 is 1 modulo MODULUS
+		long sum = (low & MODULUS) + ((low >>> 61) | (high << 3));
+		return reduce(sum);
+	}
+
+	/**
+	 * @return a + b modulo MODULUS, for a and b less than MODULUS
+	 */
+	static long add(long a, long b) {
+		return reduce(a + b);
+	}
+
+	/**
+	 * @return a - b modulo MODULUS, for a and b less than MODULUS
+	 */
+	static long subtract(long a, long b) {
+		return reduce(a - b + MODULUS);
+	}
+
+	/**
+	 * @return BASE^exponent modulo MODULUS, in O(log exponent)
+	 */
+	static long power(int exponent) {
+		long result = 1;
+		long square = BASE;
+		while(exponent > 0) {
+			if((exponent & 1) != 0) {
+				result = multiply(result, square);
+			}
+			square = multiply(square, square);
+			exponent >>>= 1;
+		}
+		return result;
+	}
+
+	/**
+	 * @return the hash of the text of left followed by that of right, whose
+	 *         length is given by rightPower, BASE to that length
+	 */
+	static long concat(long left, long right, long rightPower) {
+		return add(multiply(left, rightPower), right);
+	}
+
+	/**
+	 * @return the hash of the single character ch
+	 */
+	static long term(char ch) {
+		return ch + 1;
+	}
+
+	/**
+	 * @return the hash of s, see EditTree.hashOf()
+	 */
+	static long of(CharSequence s) {
+		long hash = 0;
+		for(int i = 0; i < s.length(); i++) {
+			hash = concat(hash, term(s.charAt(i)), BASE);
+		}
+		return hash;
+	}
+
+	// for sums less than 2 * MODULUS + 2^61
+	private static long reduce(long sum) {
+		sum = (sum & MODULUS) + (sum >>> 61);
+		return sum >= MODULUS ? sum - MODULUS : sum;
+	}
+}
@@ -0,0 +1,79 @@
+package editortrees;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds where needle starts in the subtree n, whose size characters start at
+ * offset in the tree, for EditTree.findAll(): a subtree of up to
+ * SEARCH_CHUNK characters is scanned with a KMP matcher, reading
+ * up to |needle| - 1 characters past its end so a match across the seam with
+ * the next subtree is found too; a larger one has its two children searched
+ * in parallel and checks the position of its own node itself. Subtrees of a
+ * tree can be read at the same time, since readers change nothing.
+ *
+ * The result is left in matches, in order.
+ */
+class SearchTask extends RecursiveAction {
+	private static final long serialVersionUID = 1L;
+
+	private final EditTree tree;
+	// shared by every task; each scan copies it for a state of its own
+	private final KmpMatcher pattern;
+	private final Node n;
+	private final int offset;
+	private final int size;
+
+	int[] matches;
+
+	SearchTask(EditTree tree, KmpMatcher pattern, Node n, int offset, int size) {
+		this.tree = tree;
+		this.pattern = pattern;
+		this.n = n;
+		this.offset = offset;
+		this.size = size;
+	}
+
+	@Override
+	protected void compute() {
+		if(size <= EditTree.SEARCH_CHUNK) {
+			matches = scan(offset, offset + size);
+			return;
+		}
+		SearchTask left = new SearchTask(tree, pattern, n.left, offset, n.rank);
+		SearchTask right = new SearchTask(tree, pattern, n.right, offset + n.rank + 1, size - n.rank - 1);
+		invokeAll(left, right);
+		// the matches that hold this node's character: the ones to its left
+		// end before it, the ones to its right start after it
+		int at = offset + n.rank;
+		int reach = pattern.length() - 1;
+		int[] middle = scan(Math.max(offset, at - reach), Math.min(offset + size, at + 1 + reach));
+		matches = Arrays.copyOf(left.matches, left.matches.length + middle.length + right.matches.length);
+		System.arraycopy(middle, 0, matches, left.matches.length, middle.length);
+		System.arraycopy(right.matches, 0, matches, left.matches.length + middle.length, right.matches.length);
+	}
+
+	// the matches that lie from start up to, not including, end, which are
+	// inside this task's subtree
+	private int[] scan(int start, int end) {
+		int length = pattern.length();
+		if(end - start < length) {
+			return new int[0];
+		}
+		int[] found = new int[8];
+		int count = 0;
+		KmpMatcher matcher = new KmpMatcher(pattern);
+		int sets = tree.characterSets();
+		long first = matcher.firstBit();
+		// the matcher keeps its state after a match, for the ones overlapping
+		// it; the next one is looked for from the end of the last, in n
+		int pos = start;
+		while((pos = Node.feedForward(n, offset, pos, end, matcher, sets, first)) >= 0) {
+			if(count == found.length) {
+				found = Arrays.copyOf(found, count * 2);
+			}
+			found[count++] = pos - length;
+		}
+		return Arrays.copyOf(found, count);
+	}
+}
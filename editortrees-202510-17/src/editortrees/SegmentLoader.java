@@ -0,0 +1,83 @@
+package editortrees;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Builds the tree for the file segments from bounds[from] to bounds[to] for
+ * EditTree.open(): one segment is memory-mapped, decoded and built into a
+ * balanced tree on its own; more are split in half, built in parallel, and
+ * the two trees concatenated. The segments must start on character
+ * boundaries, so each can be decoded without the others.
+ *
+ * The result is left in root, height and size.
+ */
+class SegmentLoader extends RecursiveAction {
+	private static final long serialVersionUID = 1L;
+
+	// builds the nodes, so they get its owner and are the kind of node it is
+	// made of: counted, or with its summaries, if it is
+	private final EditTree tree;
+	private final FileChannel channel;
+	private final Charset charset;
+	private final long[] bounds;
+	private final int from, to;
+
+	Node root;
+	int height;
+	int size;
+
+	SegmentLoader(EditTree tree, FileChannel channel, Charset charset, long[] bounds, int from, int to) {
+		this.tree = tree;
+		this.channel = channel;
+		this.charset = charset;
+		this.bounds = bounds;
+		this.from = from;
+		this.to = to;
+	}
+
+	@Override
+	protected void compute() {
+		if(to - from == 1) {
+			CharBuffer chars = decode(bounds[from], bounds[to] - bounds[from]);
+			size = chars.remaining();
+			root = tree.TreeMakerWString(chars, 0, size-1);
+			height = EditTree.builtHeight(size);
+			return;
+		}
+		int middle = (from + to) / 2;
+		SegmentLoader left = new SegmentLoader(tree, channel, charset, bounds, from, middle);
+		SegmentLoader right = new SegmentLoader(tree, channel, charset, bounds, middle, to);
+		invokeAll(left, right);
+		if((long) left.size + right.size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("file has too many characters for one tree");
+		}
+		// the two halves share no nodes, so halves of other tasks can be joined
+		// at the same time
+		BContainer b = new BContainer(false, 0);
+		b.owner = tree.owner();
+		root = Node.concat(left.root, left.height, left.size, right.root, right.height, right.size,
+				new SplitContainer(), b);
+		height = b.height;
+		size = left.size + right.size;
+	}
+
+	private CharBuffer decode(long start, long length) {
+		try {
+			MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+			return charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE).decode(bytes);
+		} catch(CharacterCodingException e) {
+			throw new IllegalStateException(e); // can't happen when replacing
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
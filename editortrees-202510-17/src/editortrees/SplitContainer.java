@@ -0,0 +1,10 @@
+package editortrees;
+
+/**
+ * The two trees produced by Node.split(), with their heights so they can be
+ * joined again without walking down to find them.
+ */
+public class SplitContainer {
+	Node left, right;
+	int leftHeight, rightHeight;
+}
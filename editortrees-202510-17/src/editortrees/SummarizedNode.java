@@ -0,0 +1,132 @@
+package editortrees;
+
+import java.util.function.Predicate;
+
+/**
+ * A node of a tree made with summaries (see EditTree(String, List)): it keeps
+ * the value of each of the tree's summaries for its subtree, besides the
+ * counts of a CountedNode. Trees without summaries are made of other nodes,
+ * so their nodes carry neither the kinds nor the values.
+ */
+class SummarizedNode extends CountedNode {
+	final Summary<?>[] kinds; // the tree's summaries
+	// their values for this subtree; changed in place by pull(), which only
+	// happens to nodes the tree owns, so copy() gives a copy its own array
+	final Object[] values;
+
+	SummarizedNode(char data, Node left, Node right, int rank, Code balance, Summary<?>[] kinds) {
+		super(data, left, right, rank, balance);
+		this.kinds = kinds;
+		this.values = new Object[kinds.length];
+	}
+
+	@Override
+	Node copy() {
+		Node copy = new SummarizedNode(data, left, right, rank, balance, kinds);
+		copy.copyCounts(this);
+		return copy;
+	}
+
+	@Override
+	void copyCounts(Node from) {
+		super.copyCounts(from);
+		System.arraycopy(((SummarizedNode) from).values, 0, values, 0, values.length);
+	}
+
+	@Override
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	void pull() {
+		super.pull();
+		for(int i = 0; i < values.length; i++) {
+			Summary kind = kinds[i];
+			Object value = kind.of(data);
+			if(left != NULL_NODE) {
+				value = kind.combine(valueIn(left, i), value);
+			}
+			if(right != NULL_NODE) {
+				value = kind.combine(value, valueIn(right, i));
+			}
+			values[i] = value;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	static <S> S valueIn(Node n, int i) {
+		return (S) ((SummarizedNode) n).values[i];
+	}
+
+	/**
+	 * @return the value of summary kind (kinds[i]) for the first pos
+	 *         characters of the tree rooted at n, in O(log n)
+	 */
+	static <S> S summaryBefore(Node n, int pos, Summary<S> kind, int i) {
+		S value = kind.identity();
+		while(n != NULL_NODE) {
+			if(pos <= n.rank) {
+				n = n.left;
+				continue;
+			}
+			if(n.left != NULL_NODE) {
+				value = kind.combine(value, SummarizedNode.<S>valueIn(n.left, i));
+			}
+			value = kind.combine(value, kind.of(n.data));
+			pos = pos - (n.rank+1);
+			n = n.right;
+		}
+		return value;
+	}
+
+	/**
+	 * Like summaryBefore() for EditTree.HASHES, kept as kinds[i], but without
+	 * making a RollingHash.Value at each step.
+	 * 
+	 * @return the hash of the first pos characters of the tree rooted at n,
+	 *         in O(log n)
+	 */
+	static long hashBefore(Node n, int pos, int i) {
+		long hash = 0;
+		while(n != NULL_NODE) {
+			if(pos <= n.rank) {
+				n = n.left;
+				continue;
+			}
+			if(n.left != NULL_NODE) {
+				RollingHash.Value left = valueIn(n.left, i);
+				hash = RollingHash.concat(hash, left.hash, left.power);
+			}
+			hash = RollingHash.concat(hash, RollingHash.term(n.data), RollingHash.BASE);
+			pos = pos - (n.rank+1);
+			n = n.right;
+		}
+		return hash;
+	}
+
+	/**
+	 * @return the smallest pos > 0 for which found holds for the value of
+	 *         summary kind for the first pos characters of the tree rooted at
+	 *         n, or -1 if there is none; found must not hold for the identity,
+	 *         and once it holds for a prefix it must hold for every longer one.
+	 *         O(log n) calls to found.
+	 */
+	static <S> int seekBy(Node n, Summary<S> kind, int i, Predicate<? super S> found) {
+		S value = kind.identity();
+		int pos = 0;
+		while(n != NULL_NODE) {
+			if(n.left != NULL_NODE) {
+				S withLeft = kind.combine(value, SummarizedNode.<S>valueIn(n.left, i));
+				if(found.test(withLeft)) {
+					n = n.left;
+					continue;
+				}
+				value = withLeft;
+			}
+			value = kind.combine(value, kind.of(n.data));
+			if(found.test(value)) {
+				return pos + n.rank + 1;
+			}
+			pos += n.rank + 1;
+			n = n.right;
+		}
+		return -1;
+	}
+}
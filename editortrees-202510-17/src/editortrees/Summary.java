@@ -0,0 +1,35 @@
+package editortrees;
+
+/**
+ * A statistic an EditTree keeps for every subtree, so it can be asked about
+ * any prefix of the text in O(log n) (see EditTree.prefixSummary() and
+ * EditTree.seekBy()) instead of scanning it. The values have to form a
+ * monoid: combine() must be associative, with identity() as its identity,
+ * since the tree only promises to combine the values of adjacent pieces in
+ * order, not how it groups them. Values should be immutable; nodes shared
+ * with snapshots share them too.
+ *
+ * Each node combines its children's values with its own character's when it
+ * is pulled (see Node.pull()), so an edit recomputes only the values on its
+ * path and in its rotations. Give the tree the summaries when it is made,
+ * with EditTree(String, List).
+ *
+ * @param <S> type of the values
+ */
+public interface Summary<S> {
+
+	/**
+	 * @return the value of an empty piece of text
+	 */
+	S identity();
+
+	/**
+	 * @return the value of the one-character text ch
+	 */
+	S of(char ch);
+
+	/**
+	 * @return the value of the text of left followed by the text of right
+	 */
+	S combine(S left, S right);
+}
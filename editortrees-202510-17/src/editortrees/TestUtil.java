@@ -0,0 +1,71 @@
+package editortrees;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+/**
+ * Helpers shared by the test classes: random documents, and checks that a
+ * tree holds what it should and is still a valid AVL tree with correct ranks.
+ */
+final class TestUtil {
+
+	private TestUtil() {
+	}
+
+	/**
+	 * @return length random lowercase letters
+	 */
+	static String randomString(Random random, int length) {
+		return randomString(random, length, 26);
+	}
+
+	/**
+	 * @return length random letters from the first letters of the alphabet
+	 */
+	static String randomString(Random random, int length, int letters) {
+		StringBuilder result = new StringBuilder(length);
+		for(int i = 0; i < length; i++) {
+			result.append((char) ('a' + random.nextInt(letters)));
+		}
+		return result.toString();
+	}
+
+	/**
+	 * @return length random lowercase letters, about one in eight of them
+	 *         replaced by a newline
+	 */
+	static String randomLines(Random random, int length) {
+		StringBuilder result = new StringBuilder(length);
+		for(int i = 0; i < length; i++) {
+			result.append(random.nextInt(8) == 0 ? '\n' : (char) ('a' + random.nextInt(26)));
+		}
+		return result.toString();
+	}
+
+	static void assertValid(String expected, EditTree t) {
+		assertEquals(expected, t.toString());
+		assertEquals(expected.length(), t.size());
+		assertEquals(expected.length(), t.slowSize());
+		assertTrue(t.ranksMatchLeftSubtreeSize());
+		assertTrue(t.balanceCodesAreCorrect());
+		assertEquals(t.slowHeight(), Node.height(t.root));
+	}
+
+	static void assertValid(String expected, ArenaEditTree t) {
+		assertEquals(expected, t.toString());
+		assertEquals(expected.length(), t.size());
+		assertEquals(expected.length(), t.slowSize());
+		assertTrue(t.ranksMatchLeftSubtreeSize());
+		assertTrue(t.balanceCodesAreCorrect());
+	}
+
+	static void assertValid(String expected, ChunkedEditTree t) {
+		assertEquals(expected, t.toString());
+		assertEquals(expected.length(), t.size());
+		assertEquals(expected.length(), t.slowSize());
+		assertTrue(t.ranksMatchLeftSubtreeSize());
+		assertTrue(t.balanceCodesAreCorrect());
+	}
+}